@@ -0,0 +1,60 @@
+package com.library.bench;
+
+import com.library.models.Book;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalog for benchmarks. Genres and publishers are
+ * drawn from small vocabularies, titles and authors from larger ones, which
+ * roughly matches the value distribution of a real catalog.
+ */
+public final class CatalogGenerator {
+    private static final String[] GENRES = {
+            "Programming", "Computer Science", "Fiction", "Science Fiction", "History",
+            "Biography", "Mathematics", "Philosophy", "Poetry", "Children", "Travel", "Art"
+    };
+    private static final String[] PUBLISHERS = {
+            "Addison-Wesley", "O'Reilly", "Scholastic", "Penguin", "HarperCollins", "Springer",
+            "Random House", "Macmillan", "Wiley", "MIT Press", "Oxford University Press", "Pearson"
+    };
+    private static final String[] WORDS = {
+            "java", "patterns", "history", "garden", "ocean", "night", "river", "empire", "code",
+            "silent", "winter", "machine", "theory", "light", "shadow", "journey", "modern", "art",
+            "city", "secret", "data", "system", "mountain", "song", "stone", "glass", "fire", "dream"
+    };
+    private static final String[] NAMES = {
+            "Joshua", "Erich", "Kathy", "Harper", "Suzanne", "Maria", "Wei", "Amara", "Lucas",
+            "Bloch", "Gamma", "Sierra", "Lee", "Collins", "Garcia", "Chen", "Okafor", "Novak", "Smith"
+    };
+
+    private CatalogGenerator() {
+    }
+
+    public static List<Book> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(book(i, random));
+        }
+        return books;
+    }
+
+    public static Book book(int index, Random random) {
+        String isbn = String.format("979-%010d", index);
+        String title = capitalize(pick(WORDS, random)) + " " + pick(WORDS, random) + " " + pick(WORDS, random);
+        String author = pick(NAMES, random) + " " + pick(NAMES, random);
+        int copies = 1 + random.nextInt(8);
+        return new Book(isbn, title, author, pick(GENRES, random), pick(PUBLISHERS, random),
+                1900 + random.nextInt(125), copies, "Synthetic record " + index);
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
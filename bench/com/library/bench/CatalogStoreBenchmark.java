@@ -0,0 +1,244 @@
+package com.library.bench;
+
+import com.library.data.BookSort;
+import com.library.data.CatalogBatch;
+import com.library.data.DataStorage;
+import com.library.models.Book;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Compares the heap and off-heap catalog stores
+ * ({@code -Dlibrary.catalog.store}) on the same synthetic catalog:
+ * retained heap, full-collection time, collector pauses under a mixed
+ * lookup/update/search workload, and search scan speed. Each store runs in
+ * its own forked JVM in a scratch directory, as in {@link HotPathBenchmark}.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.CatalogStoreBenchmark [books] [heap,offheap]}
+ *
+ * <p>{@code -Dbench.childHeap=6g} sets the heap of the forked JVMs (the
+ * off-heap store also needs direct memory, which defaults to the same
+ * size); {@code -Dbench.workloadSeconds} sets the length of the mixed
+ * workload (default 20).
+ */
+public final class CatalogStoreBenchmark {
+    private static final long WORKLOAD_SECONDS = Long.getLong("bench.workloadSeconds", 20);
+    private static final int SEED_BATCH = 100_000;
+
+    // Pause durations in milliseconds, appended by the collector notification thread
+    private static final List<Long> pauses = Collections.synchronizedList(new ArrayList<>());
+    // Keeps results alive so the JIT cannot drop the work
+    private static volatile long sink;
+
+    private CatalogStoreBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--child")) {
+            runChild(Integer.parseInt(args[1]), args[2]);
+            return;
+        }
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String stores = args.length > 1 ? args[1] : "heap,offheap";
+        for (String store : stores.split(",")) {
+            fork(books, store.trim());
+        }
+    }
+
+    private static void fork(int books, String store) throws IOException, InterruptedException {
+        Path workDir = Files.createTempDirectory("library-bench-");
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String heap = System.getProperty("bench.childHeap");
+        if (heap != null) {
+            command.add("-Xmx" + heap);
+        }
+        command.add("-Dlibrary.catalog.store=" + store);
+        command.add("-Dlibrary.metrics.dumpSeconds=0");
+        command.add("-Dbench.workloadSeconds=" + WORKLOAD_SECONDS);
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add(CatalogStoreBenchmark.class.getName());
+        command.add("--child");
+        command.add(Integer.toString(books));
+        command.add(store);
+
+        System.out.printf("%s store, %,d books%n", store, books);
+        Process process = new ProcessBuilder(command).directory(workDir.toFile()).redirectErrorStream(true).start();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                System.out.println("  " + line);
+            }
+        }
+        int exit = process.waitFor();
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        if (exit != 0) {
+            throw new IOException("Benchmark of the " + store + " store exited with status " + exit);
+        }
+    }
+
+    private static String absoluteClassPath() {
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classPath.length() > 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(new File(entry).getAbsolutePath());
+        }
+        return classPath.toString();
+    }
+
+    // Child side
+
+    private static void runChild(int size, String store) throws Exception {
+        DataStorage storage = DataStorage.getInstance();
+        storage.whenCatalogReady().join();
+        long start = System.nanoTime();
+        Random random = new Random(42);
+        for (int from = 0; from < size; from += SEED_BATCH) {
+            CatalogBatch batch = storage.newBatch();
+            for (int i = from; i < Math.min(size, from + SEED_BATCH); i++) {
+                batch.add(CatalogGenerator.book(i, random));
+            }
+            batch.commit();
+        }
+        System.out.printf(Locale.ROOT, "seeded in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        System.out.printf(Locale.ROOT, "retained heap        %,10.1f MB%n", usedHeap() / 1e6);
+        long fullGc = 0;
+        for (int i = 0; i < 3; i++) {
+            long gcStart = System.nanoTime();
+            System.gc();
+            fullGc = Math.max(fullGc, System.nanoTime() - gcStart);
+        }
+        System.out.printf(Locale.ROOT, "full GC (max of 3)   %,10.1f ms%n", fullGc / 1e6);
+
+        listenForPauses();
+        int operations = workload(storage, size);
+        List<Long> recorded;
+        synchronized (pauses) {
+            recorded = new ArrayList<>(pauses);
+        }
+        Collections.sort(recorded);
+        long total = 0;
+        for (long pause : recorded) {
+            total += pause;
+        }
+        System.out.printf(Locale.ROOT, "workload             %,10d ops in %d s%n", operations, WORKLOAD_SECONDS);
+        System.out.printf(Locale.ROOT, "GC pauses            %,10d, total %,d ms, p99 %,d ms, max %,d ms%n",
+                recorded.size(), total, percentile(recorded, 0.99), percentile(recorded, 1.0));
+
+        String[] words = {"garden", "machine", "shadow", "river", "java"};
+        scan("search (common word)", size, i -> storage.searchBooks(words[i % words.length]).size());
+        scan("search (rare phrase)", size, i -> storage.searchBooks("synthetic record " + (i * 7919 % size)).size());
+        scan("count available", size, i -> {
+            int available = 0;
+            for (Book book : storage.getAllBooks()) {
+                available += book.isAvailable() ? 1 : 0;
+            }
+            return available;
+        });
+        System.exit(0);
+    }
+
+    // Lookups, updates (which move the catalog version, so views and snapshots are rebuilt) and searches
+    private static int workload(DataStorage storage, int size) {
+        Random random = new Random(7);
+        long end = System.nanoTime() + WORKLOAD_SECONDS * 1_000_000_000L;
+        int operations = 0;
+        while (System.nanoTime() < end) {
+            String isbn = String.format("979-%010d", random.nextInt(size));
+            switch (operations % 10) {
+                case 0:
+                    Book book = storage.findBookByIsbn(isbn);
+                    storage.updateBookAsync(new Book(book.getIsbn(), book.getTitle() + " (revised)", book.getAuthor(),
+                            book.getGenre(), book.getPublisher(), book.getPublicationYear(), book.getTotalCopies(),
+                            book.getDescription()));
+                    break;
+                case 1:
+                    sink += storage.searchBooks("record " + random.nextInt(size)).size();
+                    break;
+                case 2:
+                    sink += storage.getBookPage("", BookSort.CATALOG, false, random.nextInt(size), 50).getRows().size();
+                    break;
+                default:
+                    sink += storage.findBookByIsbn(isbn).getTitle().length();
+                    break;
+            }
+            operations++;
+        }
+        return operations;
+    }
+
+    private interface Scan {
+        int run(int i);
+    }
+
+    private static void scan(String name, int size, Scan scan) {
+        for (int i = 0; i < 3; i++) {
+            sink += scan.run(i);
+        }
+        int runs = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            sink += scan.run(i);
+        }
+        double nanos = (double) (System.nanoTime() - start) / runs;
+        System.out.printf(Locale.ROOT, "%-20s %,10.1f ms  %,6.1f ns/book%n", name, nanos / 1e6, nanos / size);
+    }
+
+    private static void listenForPauses() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    pauses.add(info.getGcInfo().getDuration());
+                }
+            }, null, null);
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double fraction) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.max(0, (int) Math.ceil(fraction * sorted.size()) - 1));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,70 @@
+package com.library.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Runs a main class in a forked JVM inside a fresh scratch directory, so
+ * {@code DataStorage} starts from an empty data folder and the real one is
+ * left alone. The directory is deleted afterwards.
+ */
+final class ChildJvm {
+    private ChildJvm() {
+    }
+
+    /**
+     * Runs {@code main} with the given JVM options (e.g. {@code -Dname=value})
+     * and arguments, passing each line it prints to {@code output}. Returns
+     * the exit status.
+     */
+    static int run(Class<?> main, List<String> jvmOptions, List<String> args, Consumer<String> output)
+            throws IOException, InterruptedException {
+        Path workDir = Files.createTempDirectory("library-bench-");
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String heap = System.getProperty("bench.childHeap");
+        if (heap != null) {
+            command.add("-Xmx" + heap);
+        }
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add(main.getName());
+        command.addAll(args);
+
+        Process process = new ProcessBuilder(command).directory(workDir.toFile()).redirectErrorStream(true).start();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                output.accept(line);
+            }
+        }
+        int exit = process.waitFor();
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        return exit;
+    }
+
+    private static String absoluteClassPath() {
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classPath.length() > 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(new File(entry).getAbsolutePath());
+        }
+        return classPath.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.library.bench;
+
+import com.library.data.DataStorage;
+import com.library.models.Book;
+import com.library.models.BorrowRecord;
+import com.library.models.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress check for lost updates in circulation. Many threads check out,
+ * return and replace a small set of books at once (so most operations
+ * race on the same few copies) while others search and look books up. At
+ * the end every book must satisfy available + on loan == total, with the
+ * loans DataStorage reports matching the ones the threads hold, and after
+ * all loans are returned every copy must be back.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.CirculationStress [threads] [seconds] [heap|offheap]}
+ * (defaults 48 threads, 10 seconds, heap store). Runs in a forked JVM in a
+ * scratch directory and exits with status 1 if any check fails.
+ */
+public final class CirculationStress {
+    private static final int BOOKS = 32;
+
+    private CirculationStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--child")) {
+            System.exit(runChild(Integer.parseInt(args[1]), Integer.parseInt(args[2])) ? 0 : 1);
+        }
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 48;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String store = args.length > 2 ? args[2] : "heap";
+        System.out.printf("%d threads for %d s, %s store%n", threads, seconds, store);
+        int exit = ChildJvm.run(CirculationStress.class,
+                Arrays.asList("-Dlibrary.catalog.store=" + store, "-Dlibrary.metrics.dumpSeconds=0"),
+                Arrays.asList("--child", Integer.toString(threads), Integer.toString(seconds), store),
+                line -> System.out.println("  " + line));
+        if (exit != 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    // Child side
+
+    private static boolean runChild(int threads, int seconds) throws Exception {
+        DataStorage storage = DataStorage.getInstance();
+        storage.whenCatalogReady().join();
+        String[] isbns = new String[BOOKS];
+        int[] totals = new int[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            isbns[i] = String.format("978-%010d", i);
+            totals[i] = 1 + i % 4;
+            storage.addBook(new Book(isbns[i], "Stress " + i, "Author " + i, "Genre " + i % 3, "Publisher",
+                    2000 + i, totals[i], null));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong operations = new AtomicLong();
+        List<Future<List<BorrowRecord>>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            storage.registerUser("stress" + thread, "secret", "Stress " + thread, "stress@example.com", "555-0100");
+            User user = storage.authenticateUser("stress" + thread, "secret");
+            workers.add(pool.submit(() -> {
+                Random random = new Random(thread);
+                List<BorrowRecord> held = new ArrayList<>();
+                start.await();
+                while (System.nanoTime() < deadline) {
+                    int book = random.nextInt(BOOKS);
+                    int op = random.nextInt(10);
+                    if (op < 4) {
+                        BorrowRecord loan = storage.checkoutBook(user, isbns[book]);
+                        if (loan != null) {
+                            held.add(loan);
+                        }
+                    } else if (op < 7) {
+                        if (!held.isEmpty() && !storage.returnBook(held.remove(random.nextInt(held.size())).getId())) {
+                            throw new IllegalStateException("Return of a held loan was refused");
+                        }
+                    } else if (op < 8) {
+                        // Swaps the Book object while other threads take and return its copies
+                        storage.updateBook(new Book(isbns[book], "Stress " + book + " rev " + random.nextInt(),
+                                "Author " + book, "Genre " + book % 3, "Publisher", 2000 + book, totals[book], null));
+                    } else if (op < 9) {
+                        storage.findBookByIsbn(isbns[book]);
+                    } else {
+                        storage.searchBooks("Stress " + book);
+                    }
+                    operations.incrementAndGet();
+                }
+                return held;
+            }));
+        }
+        start.countDown();
+        List<BorrowRecord> held = new ArrayList<>();
+        for (Future<List<BorrowRecord>> worker : workers) {
+            held.addAll(worker.get());
+        }
+        pool.shutdown();
+        System.out.printf(Locale.ROOT, "%,d operations, %,d loans still out%n", operations.get(), held.size());
+
+        boolean passed = check(storage, isbns, totals, held);
+        Collections.shuffle(held, new Random(1));
+        for (BorrowRecord loan : held) {
+            storage.returnBook(loan.getId());
+        }
+        passed &= check(storage, isbns, totals, Collections.<BorrowRecord>emptyList());
+        return passed;
+    }
+
+    private static boolean check(DataStorage storage, String[] isbns, int[] totals, List<BorrowRecord> held) {
+        boolean passed = true;
+        for (int i = 0; i < isbns.length; i++) {
+            Book book = storage.findBookByIsbn(isbns[i]);
+            int loaned = storage.getLoansForBook(isbns[i]).size();
+            int heldHere = 0;
+            for (BorrowRecord loan : held) {
+                heldHere += loan.getIsbn().equals(isbns[i]) ? 1 : 0;
+            }
+            if (book.getAvailableCopies() + loaned != totals[i] || loaned != heldHere || book.getAvailableCopies() < 0) {
+                System.out.printf("%s: %d available + %d on loan (%d held by threads) != %d copies%n",
+                        isbns[i], book.getAvailableCopies(), loaned, heldHere, totals[i]);
+                passed = false;
+            }
+        }
+        System.out.println(passed ? "available + on loan == total for every book" : "lost updates found");
+        return passed;
+    }
+}
@@ -0,0 +1,97 @@
+package com.library.bench;
+
+import com.library.data.BinaryCodec;
+import com.library.models.Book;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the legacy Java-serialization data files with {@link BinaryCodec}
+ * on a synthetic catalog: encoded size and save/load time.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.CodecBenchmark [books] [rounds]}
+ */
+public final class CodecBenchmark {
+    private CodecBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<Book> books = CatalogGenerator.generate(count, 42);
+
+        byte[] legacy = saveLegacy(books);
+        byte[] binary = saveBinary(books);
+        System.out.printf("%,d books%n", count);
+        System.out.printf("  size   legacy %,12d bytes   binary %,12d bytes   (%.1f%% smaller)%n",
+                legacy.length, binary.length, 100.0 * (legacy.length - binary.length) / legacy.length);
+
+        // Warm up both paths before measuring
+        for (int i = 0; i < 2; i++) {
+            saveLegacy(books);
+            saveBinary(books);
+            loadLegacy(legacy);
+            loadBinary(binary);
+        }
+
+        long legacySave = 0, binarySave = 0, legacyLoad = 0, binaryLoad = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            saveLegacy(books);
+            legacySave += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            saveBinary(books);
+            binarySave += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            loadLegacy(legacy);
+            legacyLoad += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            loadBinary(binary);
+            binaryLoad += System.nanoTime() - start;
+        }
+        report("save", legacySave / rounds, binarySave / rounds);
+        report("load", legacyLoad / rounds, binaryLoad / rounds);
+    }
+
+    private static void report(String operation, long legacyNanos, long binaryNanos) {
+        System.out.printf("  %-6s legacy %,9.1f ms   binary %,9.1f ms   (%.1fx)%n", operation,
+                legacyNanos / 1e6, binaryNanos / 1e6, (double) legacyNanos / binaryNanos);
+    }
+
+    private static byte[] saveLegacy(List<Book> books) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ArrayList<Object>(books));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] saveBinary(List<Book> books) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryCodec.writeBooks(bytes, books);
+        return bytes.toByteArray();
+    }
+
+    private static Object loadLegacy(byte[] data) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+
+    private static List<Book> loadBinary(byte[] data) throws IOException {
+        InputStream in = new ByteArrayInputStream(data);
+        if (!BinaryCodec.skipMagic(in)) {
+            throw new IOException("Missing binary header");
+        }
+        return BinaryCodec.readBooks(in);
+    }
+}
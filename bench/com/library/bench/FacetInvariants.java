@@ -0,0 +1,212 @@
+package com.library.bench;
+
+import com.library.data.CatalogBatch;
+import com.library.data.DataStorage;
+import com.library.data.FacetCounts;
+import com.library.models.Book;
+import com.library.models.BorrowRecord;
+import com.library.models.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the live facet counters ({@link DataStorage#getFacetCounts()})
+ * against a recount of the catalog. A sequential phase mixes adds,
+ * replaces, removes, batches, checkouts, returns and holds, comparing
+ * after every few hundred operations; a concurrent phase then races
+ * checkouts and returns against replaces that move books between facet
+ * values, and compares once the threads are done. Each store runs in its
+ * own forked JVM in a scratch directory.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.FacetInvariants [threads] [heap,offheap]}
+ * (defaults 8 threads, both stores). Exits with status 1 if a count is off.
+ */
+public final class FacetInvariants {
+    private static final String[] GENRES = {"Fiction", "Programming", null, "History"};
+    private static final String[] PUBLISHERS = {"Acme", "Borealis", null, "Corvid"};
+
+    private FacetInvariants() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--child")) {
+            System.exit(runChild(Integer.parseInt(args[1])) ? 0 : 1);
+        }
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        String[] stores = (args.length > 1 ? args[1] : "heap,offheap").split(",");
+        boolean passed = true;
+        for (String store : stores) {
+            System.out.println(store + " store:");
+            int exit = ChildJvm.run(FacetInvariants.class,
+                    Arrays.asList("-Dlibrary.catalog.store=" + store, "-Dlibrary.metrics.dumpSeconds=0"),
+                    Arrays.asList("--child", Integer.toString(threads)),
+                    line -> System.out.println("  " + line));
+            passed &= exit == 0;
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    // Child side
+
+    private static boolean runChild(int threads) throws Exception {
+        DataStorage storage = DataStorage.getInstance();
+        storage.whenCatalogReady().join();
+        storage.registerUser("facets", "secret", "Facets", "facets@example.com", "555-0100");
+        User user = storage.authenticateUser("facets", "secret");
+        boolean passed = check(storage, "start");
+
+        Random random = new Random(5);
+        List<BorrowRecord> loans = new ArrayList<>();
+        for (int i = 0; i < 3000 && passed; i++) {
+            String isbn = String.format("979-%010d", random.nextInt(300));
+            switch (random.nextInt(8)) {
+                case 0:
+                    storage.addBook(book(random, isbn, i));
+                    break;
+                case 1:
+                    storage.updateBook(book(random, isbn, i));
+                    break;
+                case 2:
+                    storage.removeBook(isbn);
+                    break;
+                case 3:
+                case 4: {
+                    BorrowRecord loan = storage.checkoutBook(user, isbn);
+                    if (loan != null) {
+                        loans.add(loan);
+                    }
+                    break;
+                }
+                case 5:
+                    if (!loans.isEmpty()) {
+                        storage.returnBook(loans.remove(random.nextInt(loans.size())).getId());
+                    }
+                    break;
+                case 6:
+                    // A hold hands returned copies straight to the patron, skipping the shelf
+                    storage.reserveBook(user, isbn);
+                    break;
+                default: {
+                    CatalogBatch batch = storage.newBatch();
+                    batch.add(book(random, String.format("979-9%09d", i), i));
+                    batch.commit();
+                    break;
+                }
+            }
+            if (i % 250 == 0) {
+                passed = check(storage, "after " + i + " operations");
+            }
+        }
+        passed &= check(storage, "after the sequential phase");
+        if (!passed) {
+            return false;
+        }
+
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            isbns.add(String.format("978-55%08d", i));
+            storage.addBook(new Book(isbns.get(i), "Race " + i, "Author", "G" + i % 3, "P", 1990 + i, 2, null));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            workers.add(pool.submit(() -> {
+                Random mine = new Random(seed);
+                List<BorrowRecord> held = new ArrayList<>();
+                for (int i = 0; i < 4000; i++) {
+                    String isbn = isbns.get(mine.nextInt(isbns.size()));
+                    int op = mine.nextInt(10);
+                    if (op < 5) {
+                        BorrowRecord loan = storage.checkoutBook(user, isbn);
+                        if (loan != null) {
+                            held.add(loan);
+                        }
+                    } else if (op < 9) {
+                        if (!held.isEmpty()) {
+                            storage.returnBook(held.remove(mine.nextInt(held.size())).getId());
+                        }
+                    } else {
+                        storage.updateBook(new Book(isbn, "Race " + i, "Author", "G" + mine.nextInt(3), "P",
+                                1990 + mine.nextInt(50), 1 + mine.nextInt(3), null));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        return check(storage, "after the concurrent phase");
+    }
+
+    private static Book book(Random random, String isbn, int i) {
+        return new Book(isbn, "Title " + i, "Author", GENRES[random.nextInt(GENRES.length)],
+                PUBLISHERS[random.nextInt(PUBLISHERS.length)], 1950 + random.nextInt(80), 1 + random.nextInt(3), null);
+    }
+
+    // Recounts the catalog and compares every facet value with the live counters
+    private static boolean check(DataStorage storage, String when) {
+        FacetCounts counts = storage.getFacetCounts();
+        int[] total = new int[2];
+        Map<String, int[]> genres = new TreeMap<>();
+        Map<String, int[]> publishers = new TreeMap<>();
+        Map<Integer, int[]> decades = new TreeMap<>();
+        for (Book book : storage.getAllBooks()) {
+            int available = book.isAvailable() ? 1 : 0;
+            total[0]++;
+            total[1] += available;
+            count(genres, FacetCounts.genreOf(book), available);
+            count(publishers, FacetCounts.publisherOf(book), available);
+            count(decades, FacetCounts.decadeOf(book), available);
+        }
+        List<String> problems = new ArrayList<>();
+        compare("total", total, counts.getTotal(), problems);
+        compare("genre", genres, counts.getGenres(), problems);
+        compare("publisher", publishers, counts.getPublishers(), problems);
+        compare("decade", decades, counts.getDecades(), problems);
+        if (problems.isEmpty()) {
+            System.out.printf("%s: %d books, %d available, counts match%n", when, total[0], total[1]);
+            return true;
+        }
+        System.out.println(when + ": counts off");
+        problems.forEach(problem -> System.out.println("  " + problem));
+        return false;
+    }
+
+    private static <K> void count(Map<K, int[]> counts, K key, int available) {
+        int[] count = counts.computeIfAbsent(key, k -> new int[2]);
+        count[0]++;
+        count[1] += available;
+    }
+
+    private static <K> void compare(String facet, Map<K, int[]> expected, Map<K, FacetCounts.Count> actual,
+            List<String> problems) {
+        Set<K> keys = new TreeSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (K key : keys) {
+            int[] count = expected.containsKey(key) ? expected.get(key) : new int[2];
+            compare(facet + " '" + key + "'", count, actual.get(key), problems);
+        }
+    }
+
+    private static void compare(String what, int[] expected, FacetCounts.Count actual, List<String> problems) {
+        int books = actual == null ? 0 : actual.getBooks();
+        int available = actual == null ? 0 : actual.getAvailable();
+        if (books != expected[0] || available != expected[1]) {
+            problems.add(String.format("%s: %d books, %d available; recount has %d, %d",
+                    what, books, available, expected[0], expected[1]));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.library.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Minimal JMH-style measurement loop: timed warmup and measurement
+ * iterations, a sink that keeps results alive so the JIT cannot drop the
+ * work, and per-operation allocation from the HotSpot thread MXBean.
+ *
+ * <p>Tuning: {@code -Dbench.warmup} and {@code -Dbench.iterations} (counts),
+ * {@code -Dbench.iterationMillis} (length of each iteration).
+ */
+final class Harness {
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 3);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("bench.iterationMillis", 1000) * 1_000_000L;
+
+    /** A benchmarked operation; {@code i} counts up across calls so ops can rotate through inputs. */
+    interface Op {
+        Object run(int i) throws Exception;
+    }
+
+    /** One benchmark's outcome; serialized as a tab-separated line for baselines. */
+    static final class Result {
+        final String benchmark;
+        final int size;
+        final double nanosPerOp;
+        final double errorPercent;
+        final double bytesPerOp;
+
+        Result(String benchmark, int size, double nanosPerOp, double errorPercent, double bytesPerOp) {
+            this.benchmark = benchmark;
+            this.size = size;
+            this.nanosPerOp = nanosPerOp;
+            this.errorPercent = errorPercent;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        String key() {
+            return benchmark + "@" + size;
+        }
+
+        /** Allocation rate in MB/s, or -1 if allocation could not be measured. */
+        double allocationRate() {
+            return bytesPerOp < 0 ? -1 : bytesPerOp / nanosPerOp * 1e9 / 1e6;
+        }
+
+        String toLine() {
+            return String.format(Locale.ROOT, "%s\t%d\t%.1f\t%.1f\t%.1f", benchmark, size, nanosPerOp, errorPercent,
+                    bytesPerOp);
+        }
+
+        static Result parse(String line) {
+            String[] fields = line.split("\t");
+            return new Result(fields[0], Integer.parseInt(fields[1]), Double.parseDouble(fields[2]),
+                    Double.parseDouble(fields[3]), Double.parseDouble(fields[4]));
+        }
+    }
+
+    private static volatile int sink;
+
+    private Harness() {
+    }
+
+    static Result measure(String benchmark, int size, Op op) throws Exception {
+        int[] counter = {0};
+        for (int i = 0; i < WARMUP; i++) {
+            iteration(op, counter);
+        }
+        double[] nanosPerOp = new double[ITERATIONS];
+        double totalBytes = 0;
+        long totalOps = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long ops = iteration(op, counter);
+            long elapsed = System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes();
+            nanosPerOp[i] = (double) elapsed / ops;
+            totalOps += ops;
+            totalBytes = allocatedBefore < 0 ? -1 : totalBytes + (allocatedAfter - allocatedBefore);
+        }
+
+        double mean = 0;
+        for (double value : nanosPerOp) {
+            mean += value;
+        }
+        mean /= nanosPerOp.length;
+        double variance = 0;
+        for (double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean);
+        }
+        double stdev = nanosPerOp.length > 1 ? Math.sqrt(variance / (nanosPerOp.length - 1)) : 0;
+        return new Result(benchmark, size, mean, mean == 0 ? 0 : 100 * stdev / mean,
+                totalBytes < 0 ? -1 : totalBytes / totalOps);
+    }
+
+    // Runs the op until the iteration time is used up (at least once) and returns the op count
+    private static long iteration(Op op, int[] counter) throws Exception {
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        long ops = 0;
+        do {
+            Object result = op.run(counter[0]++);
+            sink += result == null ? 0 : System.identityHashCode(result);
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    // Bytes allocated by this thread so far, or -1 on JVMs without the HotSpot extension
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
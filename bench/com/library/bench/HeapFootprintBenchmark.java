@@ -0,0 +1,80 @@
+package com.library.bench;
+
+import com.library.data.BinaryCodec;
+import com.library.models.Book;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the heap retained by a loaded catalog, per book: once as the
+ * catalog is loaded at startup (decoded from the books file format) and
+ * once with every field a fresh string, as records arrive from imports,
+ * the journal or the legacy serialized files. Run with a heap large
+ * enough for the catalog, e.g. {@code -Xmx3g} for a million books.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.HeapFootprintBenchmark [books]}
+ */
+public final class HeapFootprintBenchmark {
+    private HeapFootprintBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        BinaryCodec.writeBooks(encoded, CatalogGenerator.generate(count, 42));
+        byte[] file = encoded.toByteArray();
+        System.out.printf("%,d books, %,d byte books file%n", count, file.length);
+
+        long before = usedHeap();
+        List<Book> decoded = decode(file);
+        report("decoded", decoded.size(), usedHeap() - before);
+        decoded = null;
+
+        before = usedHeap();
+        List<Book> fresh = freshStrings(count);
+        report("fresh strings", fresh.size(), usedHeap() - before);
+    }
+
+    private static List<Book> decode(byte[] file) throws Exception {
+        InputStream in = new ByteArrayInputStream(file);
+        BinaryCodec.skipMagic(in);
+        return BinaryCodec.readBooks(in);
+    }
+
+    // The generator builds titles, authors, ISBNs and descriptions per book; copy the rest too
+    private static List<Book> freshStrings(int count) {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = CatalogGenerator.book(i, random);
+            books.add(new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), new String(book.getGenre()),
+                    new String(book.getPublisher()), book.getPublicationYear(), book.getTotalCopies(),
+                    book.getDescription()));
+        }
+        return books;
+    }
+
+    private static void report(String scenario, int books, long bytes) {
+        System.out.printf("  %-14s %,14d bytes   %,7.1f bytes/book%n", scenario, bytes, (double) bytes / books);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Collect until the figure stops shrinking
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,257 @@
+package com.library.bench;
+
+import com.library.data.CatalogBatch;
+import com.library.data.DataStorage;
+import com.library.data.FileHandler;
+import com.library.models.Book;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the {@link DataStorage} and {@link FileHandler} hot paths
+ * (search, ISBN lookup, login, catalog listing, checkpoint, load and backup)
+ * against synthetic catalogs of several sizes, reporting time and
+ * allocation per operation.
+ *
+ * <p>{@code DataStorage} is a singleton over the relative {@code data}
+ * folder, so each catalog size runs in its own forked JVM inside a scratch
+ * directory; the real data folder is never touched.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.HotPathBenchmark [--sizes 1000,100000,1000000]
+ * [--save baseline.tsv] [--baseline baseline.tsv] [--threshold 10]}
+ *
+ * <p>{@code -Dbench.childHeap=4g} sets the heap of the forked JVMs; the
+ * {@code bench.warmup}, {@code bench.iterations} and
+ * {@code bench.iterationMillis} properties are passed through to them.
+ */
+public final class HotPathBenchmark {
+    private static final String RESULT_PREFIX = "RESULT\t";
+    private static final int SEED_USERS = 1000;
+    private static final int SEED_BATCH = 100_000;
+
+    private HotPathBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--child")) {
+            runChild(Integer.parseInt(args[1]));
+            return;
+        }
+
+        String sizes = "1000,100000,1000000";
+        String save = null;
+        String baseline = null;
+        double threshold = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes": sizes = args[++i]; break;
+                case "--save": save = args[++i]; break;
+                case "--baseline": baseline = args[++i]; break;
+                case "--threshold": threshold = Double.parseDouble(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<Harness.Result> results = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            results.addAll(fork(Integer.parseInt(size.trim())));
+        }
+        Map<String, Harness.Result> previous = baseline == null ? new LinkedHashMap<>() : readBaseline(baseline);
+        int regressions = report(results, previous, threshold);
+        if (save != null) {
+            try (PrintWriter out = new PrintWriter(save, "UTF-8")) {
+                for (Harness.Result result : results) {
+                    out.println(result.toLine());
+                }
+            }
+            System.out.println("Saved baseline to " + save);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) slower than the baseline by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    // Parent side
+
+    private static List<Harness.Result> fork(int size) throws IOException, InterruptedException {
+        Path workDir = Files.createTempDirectory("library-bench-");
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String heap = System.getProperty("bench.childHeap");
+        if (heap != null) {
+            command.add("-Xmx" + heap);
+        }
+        for (String property : new String[] {"bench.warmup", "bench.iterations", "bench.iterationMillis"}) {
+            if (System.getProperty(property) != null) {
+                command.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add(HotPathBenchmark.class.getName());
+        command.add("--child");
+        command.add(Integer.toString(size));
+
+        System.out.printf("Running %,d books in %s%n", size, workDir);
+        Process process = new ProcessBuilder(command).directory(workDir.toFile()).redirectErrorStream(true).start();
+        List<Harness.Result> results = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    results.add(Harness.Result.parse(line.substring(RESULT_PREFIX.length())));
+                } else {
+                    System.out.println("  | " + line);
+                }
+            }
+        }
+        int exit = process.waitFor();
+        deleteRecursively(workDir);
+        if (exit != 0) {
+            throw new IOException("Benchmark for " + size + " books exited with status " + exit);
+        }
+        return results;
+    }
+
+    private static String absoluteClassPath() {
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classPath.length() > 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(new File(entry).getAbsolutePath());
+        }
+        return classPath.toString();
+    }
+
+    private static Map<String, Harness.Result> readBaseline(String file) throws IOException {
+        Map<String, Harness.Result> baseline = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(new File(file).toPath(), StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                Harness.Result result = Harness.Result.parse(line);
+                baseline.put(result.key(), result);
+            }
+        }
+        return baseline;
+    }
+
+    private static int report(List<Harness.Result> results, Map<String, Harness.Result> baseline, double threshold) {
+        int regressions = 0;
+        System.out.printf("%n%-22s %10s %14s %8s %12s %10s %10s%n",
+                "Benchmark", "Books", "ns/op", "error", "B/op", "MB/s", "vs base");
+        for (Harness.Result result : results) {
+            String change = "";
+            Harness.Result before = baseline.get(result.key());
+            if (before != null) {
+                double percent = 100 * (result.nanosPerOp - before.nanosPerOp) / before.nanosPerOp;
+                boolean regressed = percent > threshold;
+                regressions += regressed ? 1 : 0;
+                change = String.format(Locale.ROOT, "%+.1f%%%s", percent, regressed ? " !" : "");
+            }
+            System.out.printf(Locale.ROOT, "%-22s %,10d %,14.1f %7.1f%% %,12.0f %,10.1f %10s%n",
+                    result.benchmark, result.size, result.nanosPerOp, result.errorPercent,
+                    result.bytesPerOp, result.allocationRate(), change);
+        }
+        return regressions;
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Child side: seeds the scratch data folder and measures each hot path
+
+    private static void runChild(int size) throws Exception {
+        DataStorage storage = DataStorage.getInstance();
+        long start = System.nanoTime();
+        seed(storage, size);
+        System.out.printf("Seeded %,d books and %,d users in %.1f s%n", size, SEED_USERS,
+                (System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(7);
+        String[] isbns = new String[4096];
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = String.format("979-%010d", random.nextInt(size));
+        }
+        String[] words = {"garden", "machine", "shadow", "river", "java"};
+
+        emit(Harness.measure("searchBooks.word", size, i -> storage.searchBooks(words[i % words.length])));
+        emit(Harness.measure("searchBooks.rare", size, i -> storage.searchBooks("synthetic record " + (i % size))));
+        emit(Harness.measure("searchBooks.prefix", size, i -> storage.searchBooks("ga")));
+        emit(Harness.measure("findBookByIsbn", size, i -> storage.findBookByIsbn(isbns[i & (isbns.length - 1)])));
+        emit(Harness.measure("authenticateUser", size,
+                i -> storage.authenticateUser("reader" + (i % SEED_USERS), "secret" + (i % SEED_USERS))));
+        emit(Harness.measure("getAllBooks", size, i -> storage.getAllBooks()));
+        emit(Harness.measure("saveData", size, i -> {
+            storage.saveData();
+            return null;
+        }));
+        // DataStorage.loadData only runs from the constructor; time the same file reads it performs
+        emit(Harness.measure("loadData", size, i -> {
+            List<Object> loaded = new ArrayList<>();
+            loaded.add(FileHandler.loadUsers());
+            loaded.add(FileHandler.loadBooks());
+            loaded.add(FileHandler.loadJournal());
+            return loaded;
+        }));
+        emit(Harness.measure("createBackup", size, i -> {
+            FileHandler.createBackup();
+            return null;
+        }));
+        System.exit(0);
+    }
+
+    private static void seed(DataStorage storage, int size) throws Exception {
+        Random random = new Random(42);
+        for (int from = 0; from < size; from += SEED_BATCH) {
+            CatalogBatch batch = storage.newBatch();
+            for (int i = from; i < Math.min(size, from + SEED_BATCH); i++) {
+                Book book = CatalogGenerator.book(i, random);
+                batch.add(book);
+            }
+            batch.commit();
+        }
+
+        // Concurrent registrations share fsyncs through the group-commit journal
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> registrations = new ArrayList<>();
+            for (int i = 0; i < SEED_USERS; i++) {
+                int user = i;
+                registrations.add(pool.submit(() -> storage.registerUser("reader" + user, "secret" + user,
+                        "Reader " + user, "reader" + user + "@example.com", "555-0100")));
+            }
+            for (Future<Boolean> registration : registrations) {
+                registration.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        storage.saveData();
+    }
+
+    private static void emit(Harness.Result result) {
+        System.out.println(RESULT_PREFIX + result.toLine());
+    }
+}
@@ -0,0 +1,235 @@
+package com.library.bench;
+
+import com.library.data.BookPage;
+import com.library.data.BookSort;
+import com.library.data.DataStorage;
+import com.library.data.FacetCounts;
+import com.library.models.Book;
+import com.library.models.BorrowRecord;
+import com.library.models.User;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Checks that the heap and off-heap catalog stores
+ * ({@code -Dlibrary.catalog.store}) behave the same. Each store runs in its
+ * own forked JVM in a scratch directory and replays the same random
+ * sequence of adds, replaces, removes, lookups, searches, page reads,
+ * checkouts, returns and saves through {@link DataStorage}, printing one
+ * line per result; the lines of the two runs must be identical. ISBNs are
+ * drawn from a small pool in several spellings (and, for catalog
+ * operations, null), so most operations hit existing books and exercise
+ * ISBN normalization.
+ *
+ * <p>Usage: {@code java -cp out com.library.bench.StoreParity [operations] [seed]}
+ * (defaults 20000 operations, seed 1). Exits with status 1 and prints the
+ * first differing result if the stores disagree.
+ */
+public final class StoreParity {
+    private static final int ISBNS = 300;
+    private static final String[] WORDS = {
+            "river", "Stone", "night", "garden", "\u00c9lan", "\u00fcber", "the", "x", "Of", "sea"
+    };
+
+    private StoreParity() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--child")) {
+            runChild(Integer.parseInt(args[1]), Long.parseLong(args[2]));
+            System.exit(0);
+        }
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        List<String> heap = run("heap", operations, seed);
+        List<String> offHeap = run("offheap", operations, seed);
+
+        int lines = Math.min(heap.size(), offHeap.size());
+        for (int i = 0; i < lines; i++) {
+            if (!heap.get(i).equals(offHeap.get(i))) {
+                System.out.println("Stores differ at result " + i + ":");
+                System.out.println("  heap:    " + heap.get(i));
+                System.out.println("  offheap: " + offHeap.get(i));
+                System.exit(1);
+            }
+        }
+        if (heap.size() != offHeap.size()) {
+            System.out.printf("Stores differ: %d results on heap, %d off-heap%n", heap.size(), offHeap.size());
+            System.exit(1);
+        }
+        System.out.printf("%d operations, %d results identical on both stores%n", operations, lines);
+    }
+
+    private static List<String> run(String store, int operations, long seed) throws Exception {
+        List<String> lines = new ArrayList<>();
+        int exit = ChildJvm.run(StoreParity.class,
+                Arrays.asList("-Dlibrary.catalog.store=" + store, "-Dlibrary.metrics.dumpSeconds=0"),
+                Arrays.asList("--child", Integer.toString(operations), Long.toString(seed)),
+                lines::add);
+        if (exit != 0) {
+            lines.forEach(line -> System.out.println("  " + line));
+            throw new IllegalStateException(store + " run failed with exit status " + exit);
+        }
+        return lines;
+    }
+
+    // Child side
+
+    private static void runChild(int operations, long seed) {
+        DataStorage storage = DataStorage.getInstance();
+        storage.whenCatalogReady().join();
+        storage.registerUser("parity", "secret", "Parity", "parity@example.com", "555-0100");
+        User user = storage.authenticateUser("parity", "secret");
+        Random random = new Random(seed);
+        List<BorrowRecord> loans = new ArrayList<>();
+
+        for (int i = 0; i < operations; i++) {
+            String isbn = isbn(random);
+            String result;
+            switch (random.nextInt(12)) {
+                case 0:
+                case 1:
+                    result = "add " + storage.addBook(book(random, isbn));
+                    break;
+                case 2:
+                    result = "update " + storage.updateBook(book(random, isbn));
+                    break;
+                case 3:
+                    result = "remove " + storage.removeBook(isbn);
+                    break;
+                case 4:
+                case 5:
+                    result = "find " + format(storage.findBookByIsbn(isbn));
+                    break;
+                case 6:
+                    result = "search " + digest(storage.searchBooks(query(random)));
+                    break;
+                case 7: {
+                    BookSort sort = BookSort.values()[random.nextInt(BookSort.values().length)];
+                    BookPage page = storage.getBookPage(random.nextBoolean() ? "" : query(random), sort,
+                            random.nextBoolean(), random.nextInt(50), 1 + random.nextInt(40));
+                    result = "page " + sort + " " + page.getTotalRows() + " " + page.getOffset() + " "
+                            + digest(page.getRows());
+                    break;
+                }
+                case 8:
+                case 9: {
+                    // Null ISBNs are a catalog concern; circulation assumes a real one
+                    BorrowRecord loan = isbn == null ? null : storage.checkoutBook(user, isbn);
+                    if (loan != null) {
+                        loans.add(loan);
+                    }
+                    result = "checkout " + (loan == null ? "none" : loan.getIsbn());
+                    break;
+                }
+                case 10:
+                    result = "return " + (loans.isEmpty() ? "none"
+                            : storage.returnBook(loans.remove(random.nextInt(loans.size())).getId()));
+                    break;
+                default:
+                    if (random.nextInt(20) == 0) {
+                        storage.saveData();
+                        result = "save";
+                    } else {
+                        result = "facets " + facets(storage.getFacetCounts());
+                    }
+                    break;
+            }
+            System.out.println(i + " " + result);
+        }
+
+        // The whole catalog, row by row, so a difference shows up readably
+        for (Book book : storage.getAllBooks()) {
+            System.out.println("catalog " + format(book));
+        }
+        System.out.println("facets " + facets(storage.getFacetCounts()));
+    }
+
+    // One of a fixed pool of ISBNs, spelled in one of the ways that normalize to it, or null
+    private static String isbn(Random random) {
+        if (random.nextInt(200) == 0) {
+            return null;
+        }
+        String digits = String.format("97800%08d", random.nextInt(ISBNS));
+        switch (random.nextInt(3)) {
+            case 0:
+                return digits;
+            case 1:
+                return digits.substring(0, 3) + "-" + digits.substring(3, 8) + "-" + digits.substring(8);
+            default:
+                return " " + digits + " ";
+        }
+    }
+
+    private static Book book(Random random, String isbn) {
+        String description = random.nextInt(4) == 0 ? null : words(random, 6);
+        return new Book(isbn, words(random, 3), words(random, 2),
+                random.nextInt(8) == 0 ? null : WORDS[random.nextInt(4)],
+                random.nextInt(8) == 0 ? null : WORDS[4 + random.nextInt(4)],
+                1950 + random.nextInt(75), 1 + random.nextInt(4), description);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    // Whole words, fragments short enough to skip the search index, and ISBN pieces
+    private static String query(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return WORDS[random.nextInt(WORDS.length)];
+            case 1: {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                int start = random.nextInt(word.length());
+                return word.substring(start, Math.min(word.length(), start + 1 + random.nextInt(3)));
+            }
+            case 2:
+                return String.format("%03d", random.nextInt(ISBNS));
+            default:
+                return words(random, 2).toUpperCase();
+        }
+    }
+
+    private static String format(Book book) {
+        if (book == null) {
+            return "null";
+        }
+        return book.getIsbn() + "|" + book.getTitle() + "|" + book.getAuthor() + "|" + book.getGenre() + "|"
+                + book.getPublisher() + "|" + book.getPublicationYear() + "|" + book.getTotalCopies() + "|"
+                + book.getAvailableCopies() + "|" + book.getDescription();
+    }
+
+    // Row count and a checksum of the rows in order, to keep the output small
+    private static String digest(List<Book> books) {
+        CRC32 crc = new CRC32();
+        for (Book book : books) {
+            crc.update(format(book).getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return books.size() + " " + Long.toHexString(crc.getValue());
+    }
+
+    private static String facets(FacetCounts counts) {
+        StringBuilder text = new StringBuilder();
+        text.append(counts.getTotal().getBooks()).append('/').append(counts.getTotal().getAvailable());
+        for (Map<?, FacetCounts.Count> facet : Arrays.<Map<?, FacetCounts.Count>>asList(
+                counts.getGenres(), counts.getPublishers(), counts.getDecades())) {
+            text.append(" {");
+            for (Map.Entry<?, FacetCounts.Count> entry : facet.entrySet()) {
+                text.append(entry.getKey()).append('=').append(entry.getValue().getBooks()).append('/')
+                        .append(entry.getValue().getAvailable()).append(',');
+            }
+            text.append('}');
+        }
+        return text.toString();
+    }
+}
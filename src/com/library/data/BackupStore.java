@@ -0,0 +1,299 @@
+package com.library.data;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content-addressed, deduplicating backup store.
+ *
+ * <p>Files are split into content-defined chunks (a gear rolling hash picks
+ * the cut points, so an edit only changes the chunks around it) and each
+ * chunk is stored once under its SHA-256 in {@code chunks/}. A snapshot is
+ * a small manifest in {@code snapshots/} listing each file's chunks. New
+ * chunks are copied with {@link FileChannel#transferTo}, and hashing reads
+ * the source through a memory map, so backing up an unchanged catalog
+ * writes nothing but the manifest.
+ */
+public class BackupStore {
+    private static final int MIN_CHUNK = 64 * 1024;
+    private static final int MAX_CHUNK = 1024 * 1024;
+    // Cut when the low 18 bits of the rolling hash are zero: ~256 KiB average chunks
+    private static final long CUT_MASK = (1L << 18) - 1;
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x4C4D5342L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /** How many snapshots {@link #prune} keeps. */
+    public static class Retention {
+        private final int latest;
+        private final int dailyDays;
+        private final int weeklyWeeks;
+
+        /**
+         * Keeps the {@code latest} newest snapshots, plus the newest snapshot of
+         * each of the last {@code dailyDays} days and {@code weeklyWeeks} weeks.
+         */
+        public Retention(int latest, int dailyDays, int weeklyWeeks) {
+            this.latest = latest;
+            this.dailyDays = dailyDays;
+            this.weeklyWeeks = weeklyWeeks;
+        }
+    }
+
+    private final File chunkDir;
+    private final File snapshotDir;
+
+    public BackupStore(File root) {
+        this.chunkDir = new File(root, "chunks");
+        this.snapshotDir = new File(root, "snapshots");
+    }
+
+    /** Backs up the given files (missing ones are skipped) and returns the new snapshot id. */
+    public synchronized String createSnapshot(List<File> files) throws IOException {
+        chunkDir.mkdirs();
+        snapshotDir.mkdirs();
+
+        StringBuilder manifest = new StringBuilder();
+        for (File file : files) {
+            if (!file.exists()) {
+                continue;
+            }
+            try (FileChannel source = new FileInputStream(file).getChannel()) {
+                long size = source.size();
+                manifest.append(file.getName()).append('\t').append(size).append('\t');
+                List<String> hashes = storeChunks(source, size);
+                manifest.append(String.join(",", hashes)).append('\n');
+            }
+        }
+
+        long id = System.currentTimeMillis();
+        while (manifestFile(Long.toString(id)).exists()) {
+            id++;
+        }
+        String snapshotId = Long.toString(id);
+        File temp = new File(snapshotDir, snapshotId + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            out.write(manifest.toString());
+        }
+        Files.move(temp.toPath(), manifestFile(snapshotId).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return snapshotId;
+    }
+
+    /** Snapshot ids, oldest first. */
+    public synchronized List<String> listSnapshots() {
+        List<String> ids = new ArrayList<>();
+        String[] names = snapshotDir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(MANIFEST_SUFFIX)) {
+                    ids.add(name.substring(0, name.length() - MANIFEST_SUFFIX.length()));
+                }
+            }
+        }
+        ids.sort((a, b) -> Long.compare(Long.parseLong(a), Long.parseLong(b)));
+        return ids;
+    }
+
+    /** Reassembles every file of a snapshot into {@code targetDir}. */
+    public synchronized void restore(String snapshotId, File targetDir) throws IOException {
+        targetDir.mkdirs();
+        for (String[] entry : readManifest(snapshotId)) {
+            try (FileChannel out = new FileOutputStream(new File(targetDir, entry[0])).getChannel()) {
+                for (String hash : chunkHashes(entry)) {
+                    try (FileChannel chunk = new FileInputStream(chunkFile(hash)).getChannel()) {
+                        long size = chunk.size();
+                        for (long done = 0; done < size; ) {
+                            done += chunk.transferTo(done, size - done, out);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Thins old snapshots according to the retention policy, then deletes
+     * chunks no remaining snapshot refers to. Returns the number of snapshots removed.
+     */
+    public synchronized int prune(Retention retention, long now) throws IOException {
+        List<String> ids = listSnapshots();
+        Set<String> keep = new HashSet<>();
+        Set<Long> days = new HashSet<>();
+        Set<Long> weeks = new HashSet<>();
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            String id = ids.get(i);
+            long age = now - Long.parseLong(id);
+            long day = TimeUnit.MILLISECONDS.toDays(Long.parseLong(id));
+            if (keep.size() < retention.latest) {
+                keep.add(id);
+            } else if (age < TimeUnit.DAYS.toMillis(retention.dailyDays) && days.add(day)) {
+                keep.add(id);
+            } else if (age < TimeUnit.DAYS.toMillis(7L * retention.weeklyWeeks) && weeks.add(day / 7)) {
+                keep.add(id);
+            }
+            days.add(day);
+            weeks.add(day / 7);
+        }
+
+        int removed = 0;
+        for (String id : ids) {
+            if (!keep.contains(id) && manifestFile(id).delete()) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            sweepChunks(keep);
+        }
+        return removed;
+    }
+
+    private void sweepChunks(Set<String> snapshotIds) throws IOException {
+        Set<String> live = new HashSet<>();
+        for (String id : snapshotIds) {
+            for (String[] entry : readManifest(id)) {
+                live.addAll(chunkHashes(entry));
+            }
+        }
+        File[] prefixes = chunkDir.listFiles();
+        if (prefixes == null) {
+            return;
+        }
+        for (File prefix : prefixes) {
+            File[] chunks = prefix.listFiles();
+            if (chunks == null) {
+                continue;
+            }
+            for (File chunk : chunks) {
+                if (!live.contains(chunk.getName())) {
+                    chunk.delete();
+                }
+            }
+        }
+    }
+
+    private List<String> storeChunks(FileChannel source, long size) throws IOException {
+        MessageDigest sha256 = sha256();
+        List<String> hashes = new ArrayList<>();
+        long chunkStart = 0;
+        while (chunkStart < size) {
+            // Map a window at the current chunk so files larger than 2 GiB work too
+            long windowLength = Math.min(MAP_WINDOW, size - chunkStart);
+            MappedByteBuffer window = source.map(FileChannel.MapMode.READ_ONLY, chunkStart, windowLength);
+            int offset = 0;
+            while (offset < windowLength) {
+                int length = nextCut(window, offset, (int) windowLength);
+                window.limit(offset + length).position(offset);
+                sha256.update(window);
+                window.limit((int) windowLength);
+
+                String hash = toHex(sha256.digest());
+                storeChunk(hash, source, chunkStart + offset, length);
+                hashes.add(hash);
+                offset += length;
+            }
+            chunkStart += windowLength;
+        }
+        return hashes;
+    }
+
+    // Length of the chunk starting at offset, using a gear rolling hash to find the cut point
+    private static int nextCut(MappedByteBuffer window, int offset, int end) {
+        int max = Math.min(end - offset, MAX_CHUNK);
+        if (max <= MIN_CHUNK) {
+            return max;
+        }
+        long hash = 0;
+        for (int i = 0; i < max; i++) {
+            hash = (hash << 1) + GEAR[window.get(offset + i) & 0xFF];
+            if (i >= MIN_CHUNK && (hash & CUT_MASK) == 0) {
+                return i + 1;
+            }
+        }
+        return max;
+    }
+
+    private void storeChunk(String hash, FileChannel source, long position, int length) throws IOException {
+        File target = chunkFile(hash);
+        if (target.exists()) {
+            return;
+        }
+        target.getParentFile().mkdirs();
+        File temp = new File(target.getParentFile(), hash + ".tmp");
+        try (FileChannel out = new FileOutputStream(temp).getChannel()) {
+            for (long done = 0; done < length; ) {
+                done += source.transferTo(position + done, length - done, out);
+            }
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<String[]> readManifest(String snapshotId) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(manifestFile(snapshotId)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    entries.add(line.split("\t", -1));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> chunkHashes(String[] entry) {
+        return entry.length < 3 || entry[2].isEmpty() ? new ArrayList<>() : Arrays.asList(entry[2].split(","));
+    }
+
+    private File manifestFile(String snapshotId) {
+        return new File(snapshotDir, snapshotId + MANIFEST_SUFFIX);
+    }
+
+    private File chunkFile(String hash) {
+        return new File(new File(chunkDir, hash.substring(0, 2)), hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,491 @@
+package com.library.data;
+
+import com.library.models.Book;
+import com.library.models.User;
+import com.library.models.ValueDictionary;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary format for the user and book data files.
+ *
+ * <pre>
+ * file   := magic "LMSB" | version:u8 | kind:u8 | dictionary | block* | 0:varint
+ * dictionary := valueCount:varint | (byteLength:varint utf8)*
+ * block  := recordCount:varint | payloadLength:varint | payload | crc32:i32
+ * payload:= stringCount:varint | (byteLength:varint utf8)* | record*
+ * </pre>
+ *
+ * Strings are written once per block and records refer to them by index
+ * (0 means null). Book authors, genres and publishers instead refer to the
+ * file-wide dictionary, so each distinct value is stored and decoded once
+ * per file; genres and publishers are then shared process-wide through
+ * {@link ValueDictionary} by the {@link Book} constructor. Version 1 files,
+ * which have no dictionary section, are still read. Integers are zig-zag
+ * varints. Each block is checksummed
+ * independently so corruption is reported rather than silently decoded;
+ * the checksum covers the record count and payload length as well as the
+ * payload, so a damaged header cannot drop or misframe records. Version 1
+ * and 2 files checksummed the payload alone and are checked that way.
+ * A book partition file is a books file whose records are each preceded
+ * by the book's catalog sequence number (a zig-zag varlong).
+ */
+public final class BinaryCodec {
+    public static final int FORMAT_VERSION = 3;
+
+    private static final byte[] MAGIC = {'L', 'M', 'S', 'B'};
+    private static final int KIND_USERS = 1;
+    private static final int KIND_BOOKS = 2;
+    private static final int KIND_BOOK_PARTITION = 3;
+    private static final int RECORDS_PER_BLOCK = 4096;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Consumes the magic number if the stream starts with it. Otherwise the
+     * stream is reset so the caller can fall back to the legacy format.
+     * The stream must support mark/reset.
+     */
+    public static boolean skipMagic(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        byte[] header = new byte[MAGIC.length];
+        int read = 0;
+        while (read < header.length) {
+            int n = in.read(header, read, header.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        if (read == MAGIC.length && Arrays.equals(header, MAGIC)) {
+            return true;
+        }
+        in.reset();
+        return false;
+    }
+
+    // Book records
+
+    public static void writeBooks(OutputStream out, List<Book> books) throws IOException {
+        write(out, KIND_BOOKS, books, sharedValues(books), BinaryCodec::writeBook);
+    }
+
+    /** Reads a books file; the stream must be positioned after the magic number. */
+    public static List<Book> readBooks(InputStream in) throws IOException {
+        return read(in, KIND_BOOKS, BinaryCodec::readBook);
+    }
+
+    static void writeBookPartition(OutputStream out, List<BookPartitions.Entry> entries) throws IOException {
+        List<Book> books = new ArrayList<>(entries.size());
+        for (BookPartitions.Entry entry : entries) {
+            books.add(entry.book);
+        }
+        write(out, KIND_BOOK_PARTITION, entries, sharedValues(books), (block, entry) -> {
+            block.writeLong(entry.sequence);
+            writeBook(block, entry.book);
+        });
+    }
+
+    /** Reads a book partition file; the stream must be positioned after the magic number. */
+    static List<BookPartitions.Entry> readBookPartition(InputStream in) throws IOException {
+        return read(in, KIND_BOOK_PARTITION, block -> new BookPartitions.Entry(block.readLong(), readBook(block)));
+    }
+
+    // Distinct authors, genres and publishers, in first-seen order
+    private static List<String> sharedValues(List<Book> books) {
+        Map<String, Boolean> values = new LinkedHashMap<>();
+        for (Book book : books) {
+            putShared(values, book.getAuthor());
+            putShared(values, book.getGenre());
+            putShared(values, book.getPublisher());
+        }
+        return new ArrayList<>(values.keySet());
+    }
+
+    private static void putShared(Map<String, Boolean> values, String value) {
+        if (value != null) {
+            values.put(value, Boolean.TRUE);
+        }
+    }
+
+    private static void writeBook(BlockWriter block, Book book) {
+        block.writeString(book.getIsbn());
+        block.writeString(book.getTitle());
+        block.writeShared(book.getAuthor());
+        block.writeShared(book.getGenre());
+        block.writeShared(book.getPublisher());
+        block.writeInt(book.getPublicationYear());
+        block.writeInt(book.getTotalCopies());
+        block.writeInt(book.getAvailableCopies());
+        block.writeString(book.getDescription());
+    }
+
+    private static Book readBook(BlockReader block) throws IOException {
+        String isbn = block.readString();
+        String title = block.readString();
+        String author = block.readShared();
+        String genre = block.readShared();
+        String publisher = block.readShared();
+        int year = block.readInt();
+        int totalCopies = block.readInt();
+        int availableCopies = block.readInt();
+        String description = block.readString();
+
+        Book book = new Book(isbn, title, author, genre, publisher, year, totalCopies, description);
+        book.setAvailableCopies(availableCopies);
+        return book;
+    }
+
+    // User records
+
+    public static void writeUsers(OutputStream out, List<User> users) throws IOException {
+        write(out, KIND_USERS, users, Collections.<String>emptyList(), (block, user) -> {
+            block.writeString(user.getUsername());
+            block.writeString(user.getPassword());
+            block.writeString(user.getRole());
+            block.writeString(user.getFullName());
+            block.writeString(user.getEmail());
+            block.writeString(user.getPhoneNumber());
+        });
+    }
+
+    /** Reads a users file; the stream must be positioned after the magic number. */
+    public static List<User> readUsers(InputStream in) throws IOException {
+        return read(in, KIND_USERS, block -> new User(block.readString(), block.readString(), block.readString(),
+                block.readString(), block.readString(), block.readString()));
+    }
+
+    // Framing
+
+    private interface RecordWriter<T> {
+        void write(BlockWriter block, T record);
+    }
+
+    private interface RecordReader<T> {
+        T read(BlockReader block) throws IOException;
+    }
+
+    private static <T> void write(OutputStream stream, int kind, List<T> records, List<String> dictionary,
+            RecordWriter<T> writer) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.write(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(kind);
+
+        Map<String, Integer> dictionaryIds = new HashMap<>();
+        writeVarint(out, dictionary.size());
+        for (String value : dictionary) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, utf8.length);
+            out.write(utf8);
+            dictionaryIds.put(value, dictionaryIds.size() + 1);
+        }
+
+        BlockWriter block = new BlockWriter(dictionaryIds);
+        CRC32 crc = new CRC32();
+        int count = 0;
+        for (T record : records) {
+            writer.write(block, record);
+            if (++count == RECORDS_PER_BLOCK) {
+                block.flushTo(out, count, crc);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            block.flushTo(out, count, crc);
+        }
+        writeVarint(out, 0);
+        out.flush();
+    }
+
+    private static <T> List<T> read(InputStream stream, int kind, RecordReader<T> reader) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        int version = in.readUnsignedByte();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Unsupported data format version " + version);
+        }
+        int actualKind = in.readUnsignedByte();
+        if (actualKind != kind) {
+            throw new IOException("Expected record kind " + kind + " but found " + actualKind);
+        }
+        String[] dictionary = version >= 2 ? readDictionary(in) : null;
+
+        List<T> records = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        for (int blockIndex = 0; ; blockIndex++) {
+            int count = readVarint(in);
+            if (count == 0) {
+                return records;
+            }
+            byte[] payload = readBytes(in, readVarint(in));
+            crc.reset();
+            if (version >= 3) {
+                updateVarint(crc, count);
+                updateVarint(crc, payload.length);
+            }
+            crc.update(payload, 0, payload.length);
+            if ((int) crc.getValue() != in.readInt()) {
+                throw new IOException("Checksum mismatch in block " + blockIndex);
+            }
+
+            BlockReader block = new BlockReader(payload, dictionary);
+            for (int i = 0; i < count; i++) {
+                records.add(reader.read(block));
+            }
+        }
+    }
+
+    // Index 0 is null, as in the block string tables
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        int count = readVarint(in);
+        // Every value takes at least its length byte
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Corrupt dictionary size " + count);
+        }
+        String[] dictionary = new String[count + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            dictionary[i] = new String(readBytes(in, readVarint(in)), StandardCharsets.UTF_8);
+        }
+        return dictionary;
+    }
+
+    /** Accumulates one block's records and string table. */
+    private static final class BlockWriter {
+        private final Map<String, Integer> dictionaryIds;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        private final ByteArray records = new ByteArray();
+
+        BlockWriter(Map<String, Integer> dictionaryIds) {
+            this.dictionaryIds = dictionaryIds;
+        }
+
+        /** Writes a value that was collected into the file dictionary. */
+        void writeShared(String value) {
+            records.writeVarint(value == null ? 0 : dictionaryIds.get(value));
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                records.writeVarint(0);
+                return;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size() + 1;
+                stringIds.put(value, id);
+                strings.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            records.writeVarint(id);
+        }
+
+        void writeInt(int value) {
+            records.writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        void writeLong(long value) {
+            records.writeVarlong((value << 1) ^ (value >> 63));
+        }
+
+        void flushTo(DataOutputStream out, int count, CRC32 crc) throws IOException {
+            ByteArray payload = new ByteArray();
+            payload.writeVarint(strings.size());
+            for (byte[] utf8 : strings) {
+                payload.writeVarint(utf8.length);
+                payload.write(utf8, 0, utf8.length);
+            }
+            payload.write(records.data, 0, records.size);
+
+            crc.reset();
+            updateVarint(crc, count);
+            updateVarint(crc, payload.size);
+            crc.update(payload.data, 0, payload.size);
+            writeVarint(out, count);
+            writeVarint(out, payload.size);
+            out.write(payload.data, 0, payload.size);
+            out.writeInt((int) crc.getValue());
+
+            stringIds.clear();
+            strings.clear();
+            records.size = 0;
+        }
+    }
+
+    /** Decodes one block: the string table up front, then records on demand. */
+    private static final class BlockReader {
+        private final byte[] data;
+        private final String[] dictionary;
+        private final String[] strings;
+        private int position;
+
+        BlockReader(byte[] data, String[] dictionary) throws IOException {
+            this.data = data;
+            this.dictionary = dictionary;
+            int count = readVarint();
+            if (count < 0 || count > data.length - position) {
+                throw new IOException("Corrupt string table size " + count);
+            }
+            strings = new String[count + 1];
+            for (int i = 1; i < strings.length; i++) {
+                int length = readVarint();
+                if (length < 0 || position + length > data.length) {
+                    throw new IOException("Corrupt string table");
+                }
+                strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+
+        String readString() throws IOException {
+            int id = readVarint();
+            if (id >= strings.length) {
+                throw new IOException("String index " + id + " out of range");
+            }
+            return strings[id];
+        }
+
+        /** A file dictionary value; version 1 files kept these in the block string table. */
+        String readShared() throws IOException {
+            if (dictionary == null) {
+                return readString();
+            }
+            int id = readVarint();
+            if (id >= dictionary.length) {
+                throw new IOException("Dictionary index " + id + " out of range");
+            }
+            return dictionary[id];
+        }
+
+        int readInt() throws IOException {
+            int raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        long readLong() throws IOException {
+            long raw = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift >= 70) {
+                    throw new IOException("Malformed varlong");
+                }
+                if (position >= data.length) {
+                    throw new EOFException("Block ended inside a varlong");
+                }
+                byte b = data[position++];
+                raw |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= data.length) {
+                    throw new EOFException("Block ended inside a varint");
+                }
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+
+    /** Minimal growable byte array; avoids ByteArrayOutputStream's synchronization and copies. */
+    private static final class ByteArray {
+        byte[] data = new byte[4096];
+        int size;
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        void writeVarlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, data, size, length);
+            size += length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+            }
+        }
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    // Feeds the varint encoding of value to the checksum, as writeVarint lays it out
+    private static void updateVarint(CRC32 crc, int value) {
+        while ((value & ~0x7F) != 0) {
+            crc.update((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        crc.update(value);
+    }
+
+    /**
+     * Reads {@code length} bytes, where the length itself came from the
+     * input: a damaged length fails here with an IOException rather than as
+     * a negative or huge allocation. The streams decoded here are files or
+     * buffers, whose {@code available()} is what is left to read.
+     */
+    static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Corrupt length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,243 @@
+package com.library.data;
+
+import com.library.models.Book;
+import com.library.models.Isbn;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Books in catalog order with a primary-key index on normalized ISBN.
+ * Removing a book leaves a tombstone in its slot, and slots are compacted
+ * once tombstones outnumber live books, so lookups, updates and deletes
+ * are all (amortized) constant time while insertion order is preserved.
+ * {@link LiveSlots} turns a slot into a catalog position (row number) in
+ * O(log n). This is the default, heap-resident {@link BookStore}.
+ *
+ * <p>Each book also has a sequence number, increasing with insertion, which
+ * is persisted so {@link BookPartitions} can restore catalog order. Changes
+ * mark the book's partition dirty until the next checkpoint takes it.
+ */
+class BookCatalog implements BookStore {
+    private final ArrayList<Book> slots = new ArrayList<>();
+    // Sequence number of the book in each slot
+    private long[] sequences = new long[16];
+    private long lastSequence;
+    // Partitions changed since the last checkpoint took them; set outside the catalog lock on failed saves
+    private final AtomicLong dirtyPartitions = new AtomicLong();
+    private final Map<String, Integer> slotByIsbn = new HashMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final LiveSlots live = new LiveSlots();
+    // Bumped on every change; volatile so readers can check it without the catalog lock
+    private volatile long version;
+
+    @Override
+    public int size() {
+        return live.count();
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public Book get(String isbn) {
+        Integer slot = slotByIsbn.get(Isbn.normalize(isbn));
+        return slot != null ? slots.get(slot) : null;
+    }
+
+    @Override
+    public boolean add(Book book) {
+        if (!append(book, lastSequence + 1)) {
+            return false;
+        }
+        markDirty(BookPartitions.bit(BookPartitions.partitionOf(book.getIsbn())));
+        return true;
+    }
+
+    @Override
+    public boolean restore(Book book, long sequence) {
+        return append(book, sequence);
+    }
+
+    private boolean append(Book book, long sequence) {
+        String key = Isbn.normalize(book.getIsbn());
+        if (key == null || slotByIsbn.containsKey(key)) {
+            return false;
+        }
+        int slot = slots.size();
+        slotByIsbn.put(key, slot);
+        slots.add(book);
+        if (slot == sequences.length) {
+            sequences = Arrays.copyOf(sequences, slot * 2);
+        }
+        sequences[slot] = sequence;
+        lastSequence = Math.max(lastSequence, sequence);
+        live.add(slot);
+        searchIndex.add(slot, book);
+        version++;
+        return true;
+    }
+
+    @Override
+    public Book replace(Book book) {
+        Integer slot = slotByIsbn.get(Isbn.normalize(book.getIsbn()));
+        if (slot == null) {
+            return null;
+        }
+        Book previous = slots.set(slot, book);
+        searchIndex.remove(slot, previous);
+        searchIndex.add(slot, book);
+        markDirty(BookPartitions.bit(BookPartitions.partitionOf(book.getIsbn())));
+        version++;
+        return previous;
+    }
+
+    @Override
+    public Book remove(String isbn) {
+        Integer slot = slotByIsbn.remove(Isbn.normalize(isbn));
+        if (slot == null) {
+            return null;
+        }
+        Book removed = slots.set(slot, null);
+        live.remove(slot);
+        searchIndex.remove(slot, removed);
+        markDirty(BookPartitions.bit(BookPartitions.partitionOf(isbn)));
+        version++;
+        if (slots.size() > 16 && live.count() < slots.size() / 2) {
+            compact();
+        }
+        return removed;
+    }
+
+    /** O(log n). */
+    @Override
+    public int positionOf(String isbn) {
+        Integer slot = slotByIsbn.get(Isbn.normalize(isbn));
+        return slot != null ? live.position(slot) : -1;
+    }
+
+    @Override
+    public void markDirty(long partitions) {
+        dirtyPartitions.accumulateAndGet(partitions, (a, b) -> a | b);
+    }
+
+    @Override
+    public long takeDirtyPartitions() {
+        return dirtyPartitions.getAndSet(0);
+    }
+
+    @Override
+    public List<List<BookPartitions.Entry>> partitionContents(long mask) {
+        List<List<BookPartitions.Entry>> partitions = new ArrayList<>(BookPartitions.COUNT);
+        for (int i = 0; i < BookPartitions.COUNT; i++) {
+            partitions.add((mask & BookPartitions.bit(i)) != 0 ? new ArrayList<>() : null);
+        }
+        for (int slot = 0; slot < slots.size(); slot++) {
+            Book book = slots.get(slot);
+            if (book == null) {
+                continue;
+            }
+            int partition = BookPartitions.partitionOf(book.getIsbn());
+            if ((mask & BookPartitions.bit(partition)) != 0) {
+                partitions.get(partition).add(new BookPartitions.Entry(sequences[slot], book));
+            }
+        }
+        return partitions;
+    }
+
+    @Override
+    public List<Book> toList() {
+        List<Book> list = new ArrayList<>(live.count());
+        for (Book book : this) {
+            list.add(book);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Book> search(String query) {
+        if (query.isEmpty()) {
+            return toList();
+        }
+        List<Book> results = new ArrayList<>();
+        forEachMatch(query, results::add, false);
+        return results;
+    }
+
+    @Override
+    public void search(String query, Predicate<Book> consumer) {
+        forEachMatch(query, consumer, true);
+    }
+
+    private void forEachMatch(String query, Predicate<Book> consumer, boolean interruptible) {
+        String lowerQuery = query.toLowerCase();
+        // Null when the query is too short for the index and every slot is checked
+        int[] candidates = lowerQuery.isEmpty() ? null : searchIndex.candidates(lowerQuery);
+        int limit = candidates != null ? candidates.length : slots.size();
+        for (int i = 0; i < limit; i++) {
+            if (interruptible && (i & 1023) == 1023 && Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            // Candidates come in slot order, which is catalog order
+            Book book = slots.get(candidates != null ? candidates[i] : i);
+            if (book != null && SearchIndex.matches(book, query, lowerQuery) && !consumer.test(book)) {
+                return;
+            }
+        }
+    }
+
+    private void compact() {
+        int[] newSlots = new int[slots.size()];
+        int next = 0;
+        for (int i = 0; i < slots.size(); i++) {
+            Book book = slots.get(i);
+            newSlots[i] = book != null ? next : -1;
+            if (book != null) {
+                slots.set(next, book);
+                sequences[next] = sequences[i];
+                slotByIsbn.put(Isbn.normalize(book.getIsbn()), next);
+                next++;
+            }
+        }
+        slots.subList(next, slots.size()).clear();
+        live.compacted(next);
+        searchIndex.renumber(newSlots, next);
+    }
+
+    @Override
+    public Iterator<Book> iterator() {
+        return new Iterator<Book>() {
+            private int cursor = advance(0);
+
+            private int advance(int from) {
+                while (from < slots.size() && slots.get(from) == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return cursor < slots.size();
+            }
+
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Book book = slots.get(cursor);
+                cursor = advance(cursor + 1);
+                return book;
+            }
+        };
+    }
+}
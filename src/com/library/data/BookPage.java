@@ -0,0 +1,28 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.List;
+
+/**
+ * A window of rows from a sorted and filtered catalog view, tagged with the
+ * catalog version it was read from so callers can tell when the view they
+ * are paging through has gone stale.
+ */
+public final class BookPage {
+    private final long version;
+    private final int totalRows;
+    private final int offset;
+    private final List<Book> rows;
+
+    BookPage(long version, int totalRows, int offset, List<Book> rows) {
+        this.version = version;
+        this.totalRows = totalRows;
+        this.offset = offset;
+        this.rows = rows;
+    }
+
+    public long getVersion() { return version; }
+    public int getTotalRows() { return totalRows; }
+    public int getOffset() { return offset; }
+    public List<Book> getRows() { return rows; }
+}
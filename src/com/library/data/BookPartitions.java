@@ -0,0 +1,81 @@
+package com.library.data;
+
+import com.library.models.Book;
+import com.library.models.Isbn;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Splits the catalog into {@link #COUNT} partitions keyed on the normalized
+ * ISBN, each persisted as its own file, so a checkpoint only rewrites the
+ * partitions that changed and loading can decode them in parallel. Every
+ * book carries a catalog sequence number (its insertion order) so the
+ * partitions can be merged back into catalog order.
+ */
+final class BookPartitions {
+    static final int COUNT = 64;
+    /** Bit mask with every partition set. */
+    static final long ALL = -1L;
+
+    /** A book and its catalog sequence number. */
+    static final class Entry {
+        final long sequence;
+        final Book book;
+
+        Entry(long sequence, Book book) {
+            this.sequence = sequence;
+            this.book = book;
+        }
+    }
+
+    private BookPartitions() {
+    }
+
+    // Stable across runs: String.hashCode is specified, and the registration
+    // groups at the front of an ISBN are too skewed to split on directly
+    static int partitionOf(String isbn) {
+        int hash = isbn == null ? 0 : Isbn.normalize(isbn).hashCode();
+        return (hash ^ (hash >>> 16)) & (COUNT - 1);
+    }
+
+    static long bit(int partition) {
+        return 1L << partition;
+    }
+
+    /** Merges partitions, each already in sequence order, into catalog order. O(n log COUNT). */
+    static List<Entry> merge(List<List<Entry>> partitions) {
+        int total = 0;
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(COUNT,
+                (a, b) -> Long.compare(a.current().sequence, b.current().sequence));
+        for (List<Entry> partition : partitions) {
+            total += partition.size();
+            if (!partition.isEmpty()) {
+                heads.add(new Cursor(partition));
+            }
+        }
+
+        List<Entry> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Cursor head = heads.poll();
+            merged.add(head.current());
+            if (++head.position < head.entries.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Cursor {
+        final List<Entry> entries;
+        int position;
+
+        Cursor(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        Entry current() {
+            return entries.get(position);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.Comparator;
+
+/** Orderings the storage layer can serve book pages in. */
+public enum BookSort {
+    CATALOG(null),
+    ISBN(Comparator.comparing(Book::getIsbn, BookSort::compareText)),
+    TITLE(Comparator.comparing(Book::getTitle, BookSort::compareText)),
+    AUTHOR(Comparator.comparing(Book::getAuthor, BookSort::compareText)),
+    GENRE(Comparator.comparing(Book::getGenre, BookSort::compareText)),
+    PUBLISHER(Comparator.comparing(Book::getPublisher, BookSort::compareText)),
+    YEAR(Comparator.comparingInt(Book::getPublicationYear)),
+    AVAILABLE(Comparator.comparingInt(Book::getAvailableCopies)),
+    TOTAL(Comparator.comparingInt(Book::getTotalCopies));
+
+    private final Comparator<Book> comparator;
+
+    BookSort(Comparator<Book> comparator) {
+        this.comparator = comparator;
+    }
+
+    /** The comparator for this ordering, or null for catalog (insertion) order. */
+    public Comparator<Book> comparator() {
+        return comparator;
+    }
+
+    private static int compareText(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(a, b);
+    }
+}
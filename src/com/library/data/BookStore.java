@@ -0,0 +1,76 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The catalog behind {@link DataStorage}: books in catalog (insertion)
+ * order, keyed on normalized ISBN, with the partition bookkeeping
+ * checkpoints need. Not thread-safe; DataStorage guards it with the
+ * catalog lock, except that a book's available copies may be changed
+ * through the {@link Book} returned by {@link #get} under the read lock.
+ *
+ * <p>{@link BookCatalog} keeps {@link Book} objects on the heap;
+ * {@link OffHeapBookStore} keeps the fields in off-heap columns and hands
+ * out views. DataStorage picks one at startup.
+ */
+interface BookStore extends Iterable<Book> {
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Bumped on every change. Safe to read without the catalog lock. */
+    long version();
+
+    /** The book with an equivalent ISBN, or null; never a book for a null ISBN. */
+    Book get(String isbn);
+
+    /** Adds the book unless its ISBN is null or one with an equivalent ISBN already exists. */
+    boolean add(Book book);
+
+    /** Re-adds a persisted book at the end of the catalog; callers restore books in sequence order. */
+    boolean restore(Book book, long sequence);
+
+    /** Replaces the book with an equivalent ISBN, returning the old one or null if absent. */
+    Book replace(Book book);
+
+    default void put(Book book) {
+        if (replace(book) == null) {
+            add(book);
+        }
+    }
+
+    Book remove(String isbn);
+
+    /** The book's row in catalog order, or -1 if it is not catalogued. */
+    int positionOf(String isbn);
+
+    /** Marks partitions (a bit mask) as needing to be written. */
+    void markDirty(long partitions);
+
+    /** Returns and clears the dirty partitions; a failed save must hand them back to {@link #markDirty}. */
+    long takeDirtyPartitions();
+
+    /**
+     * The books of the partitions in {@code mask} with their sequence
+     * numbers, in catalog order, indexed by partition; null for partitions
+     * outside the mask.
+     */
+    List<List<BookPartitions.Entry>> partitionContents(long mask);
+
+    List<Book> toList();
+
+    /** Books matching {@link SearchIndex#matches}, in catalog order. */
+    List<Book> search(String query);
+
+    /**
+     * Offers the books {@link #search(String)} would return to
+     * {@code consumer}, in catalog order, as they are found. Stops once the
+     * consumer returns false or the calling thread is interrupted, so a
+     * superseded search does not run to the end.
+     */
+    void search(String query, Predicate<Book> consumer);
+}
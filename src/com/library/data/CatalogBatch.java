@@ -0,0 +1,114 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bulk catalog changes applied as a unit. Adds, updates and removes are
+ * queued in order and nothing touches the catalog until {@link #commit}:
+ * the whole batch is validated first (an ISBN may only be added if neither
+ * the catalog nor an earlier operation in the batch holds it, and may only
+ * be updated or removed if one does), then applied under a single catalog
+ * write lock and journaled as one record behind one fsync.
+ *
+ * <p>If validation fails the catalog is left untouched and the problems are
+ * reported through {@link ValidationException}. {@link #rollback} discards
+ * the queued operations. A batch is single-use and not thread-safe.
+ *
+ * <pre>
+ * CatalogBatch batch = DataStorage.getInstance().newBatch();
+ * batch.add(book).update(changed).remove("978-0201633610");
+ * batch.commit();
+ * </pre>
+ */
+public class CatalogBatch {
+    private final DataStorage storage;
+    private final List<JournalEntry> operations = new ArrayList<>();
+    private boolean finished;
+
+    CatalogBatch(DataStorage storage) {
+        this.storage = storage;
+    }
+
+    public CatalogBatch add(Book book) {
+        return queue(JournalEntry.addBook(book));
+    }
+
+    public CatalogBatch update(Book book) {
+        return queue(JournalEntry.updateBook(book));
+    }
+
+    public CatalogBatch remove(String isbn) {
+        return queue(JournalEntry.removeBook(isbn));
+    }
+
+    /** Number of queued operations. */
+    public int size() {
+        return operations.size();
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Validates and applies every queued operation, then blocks until the
+     * batch is durable.
+     *
+     * @throws ValidationException if any operation conflicts; nothing is applied
+     */
+    public void commit() {
+        DataStorage.awaitDurable(commitAsync());
+    }
+
+    /**
+     * Like {@link #commit}, but returns once the batch is applied in memory;
+     * the future completes when its journal record is on disk.
+     *
+     * @throws ValidationException if any operation conflicts; nothing is applied
+     */
+    public CompletableFuture<Boolean> commitAsync() {
+        checkOpen();
+        finished = true;
+        return storage.applyBatch(Collections.unmodifiableList(operations));
+    }
+
+    /** Discards the queued operations without applying any of them. */
+    public void rollback() {
+        checkOpen();
+        finished = true;
+        operations.clear();
+    }
+
+    private CatalogBatch queue(JournalEntry operation) {
+        checkOpen();
+        operations.add(operation);
+        return this;
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Batch has already been committed or rolled back");
+        }
+    }
+
+    /** Thrown by {@link #commit} when the batch conflicts with itself or the catalog. */
+    public static class ValidationException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> problems;
+
+        ValidationException(List<String> problems) {
+            super(problems.size() + " invalid operation(s) in batch; first: " + problems.get(0));
+            this.problems = Collections.unmodifiableList(new ArrayList<>(problems));
+        }
+
+        /** One message per rejected operation, in batch order. */
+        public List<String> getProblems() {
+            return problems;
+        }
+    }
+}
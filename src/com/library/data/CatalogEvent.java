@@ -0,0 +1,29 @@
+package com.library.data;
+
+import com.library.models.Book;
+
+/**
+ * A single change to the catalog. {@link #getPosition()} is the book's row
+ * in catalog order: after the change for inserts and updates, before it for
+ * deletes. Events are delivered in version order.
+ */
+public final class CatalogEvent {
+    public enum Type { INSERT, UPDATE, DELETE }
+
+    private final Type type;
+    private final int position;
+    private final Book book;
+    private final long version;
+
+    CatalogEvent(Type type, int position, Book book, long version) {
+        this.type = type;
+        this.position = position;
+        this.book = book;
+        this.version = version;
+    }
+
+    public Type getType() { return type; }
+    public int getPosition() { return position; }
+    public Book getBook() { return book; }
+    public long getVersion() { return version; }
+}
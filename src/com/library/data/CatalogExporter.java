@@ -0,0 +1,297 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the catalog as CSV or JSON Lines, optionally gzipped.
+ *
+ * <p>Rows come from one {@link CatalogSnapshot}, so an export is consistent
+ * even while the catalog changes, and the snapshot is the one shared with
+ * every other reader: nothing is copied per export. Rows are UTF-8 encoded
+ * straight into a fixed 256 KiB buffer that is drained to a
+ * {@link FileChannel}, so memory use does not depend on catalog size. The
+ * CSV header matches what {@link CatalogImporter} reads back.
+ */
+public class CatalogExporter {
+    public enum Format {
+        CSV(".csv"), JSON_LINES(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String CSV_HEADER =
+            "isbn,title,author,genre,publisher,publication_year,total_copies,available_copies,description\n";
+
+    private final DataStorage storage;
+
+    public CatalogExporter(DataStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Exports to {@code target}, choosing the format by extension: .jsonl or
+     * .json for JSON Lines, anything else CSV, with a trailing .gz for gzip.
+     */
+    public long export(File target) throws IOException {
+        String name = target.getName().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) {
+            name = name.substring(0, name.length() - 3);
+        }
+        boolean json = name.endsWith(Format.JSON_LINES.getExtension()) || name.endsWith(".json");
+        return export(target, json ? Format.JSON_LINES : Format.CSV, gzip);
+    }
+
+    /**
+     * Exports the current catalog to {@code target} and returns the number of
+     * books written. The file is written under a temporary name and moved into
+     * place, so a failed export never leaves a truncated file behind.
+     */
+    public long export(File target, Format format, boolean gzip) throws IOException {
+        CatalogSnapshot snapshot = storage.getCatalogSnapshot();
+        File temp = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp");
+        try (FileChannel file = new FileOutputStream(temp).getChannel()) {
+            WritableByteChannel channel = gzip
+                    ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(file), BUFFER_SIZE))
+                    : file;
+            RowWriter out = new RowWriter(channel);
+            if (format == Format.CSV) {
+                out.ascii(CSV_HEADER);
+            }
+            for (Book book : snapshot.getBooks()) {
+                if (format == Format.CSV) {
+                    writeCsv(out, book);
+                } else {
+                    writeJson(out, book);
+                }
+            }
+            out.flush();
+            // Closing the gzip channel writes the trailer; the file channel is closed by try-with-resources
+            channel.close();
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return snapshot.size();
+    }
+
+    private static void writeCsv(RowWriter out, Book book) throws IOException {
+        csvField(out, book.getIsbn());
+        out.ascii(',');
+        csvField(out, book.getTitle());
+        out.ascii(',');
+        csvField(out, book.getAuthor());
+        out.ascii(',');
+        csvField(out, book.getGenre());
+        out.ascii(',');
+        csvField(out, book.getPublisher());
+        out.ascii(',');
+        out.number(book.getPublicationYear());
+        out.ascii(',');
+        out.number(book.getTotalCopies());
+        out.ascii(',');
+        out.number(book.getAvailableCopies());
+        out.ascii(',');
+        csvField(out, book.getDescription());
+        out.ascii('\n');
+    }
+
+    // Quotes only fields that need it, doubling embedded quotes (RFC 4180)
+    private static void csvField(RowWriter out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.text(value);
+            return;
+        }
+        out.ascii('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.ascii('"');
+            }
+            i += out.character(value, i) - 1;
+        }
+        out.ascii('"');
+    }
+
+    private static void writeJson(RowWriter out, Book book) throws IOException {
+        out.ascii("{\"isbn\":");
+        jsonString(out, book.getIsbn());
+        out.ascii(",\"title\":");
+        jsonString(out, book.getTitle());
+        out.ascii(",\"author\":");
+        jsonString(out, book.getAuthor());
+        out.ascii(",\"genre\":");
+        jsonString(out, book.getGenre());
+        out.ascii(",\"publisher\":");
+        jsonString(out, book.getPublisher());
+        out.ascii(",\"publicationYear\":");
+        out.number(book.getPublicationYear());
+        out.ascii(",\"totalCopies\":");
+        out.number(book.getTotalCopies());
+        out.ascii(",\"availableCopies\":");
+        out.number(book.getAvailableCopies());
+        out.ascii(",\"description\":");
+        jsonString(out, book.getDescription());
+        out.ascii("}\n");
+    }
+
+    private static void jsonString(RowWriter out, String value) throws IOException {
+        if (value == null) {
+            out.ascii("null");
+            return;
+        }
+        out.ascii('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.ascii("\\\"");
+                    break;
+                case '\\':
+                    out.ascii("\\\\");
+                    break;
+                case '\n':
+                    out.ascii("\\n");
+                    break;
+                case '\r':
+                    out.ascii("\\r");
+                    break;
+                case '\t':
+                    out.ascii("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.ascii(String.format("\\u%04x", (int) c));
+                    } else {
+                        i += out.character(value, i) - 1;
+                    }
+                    break;
+            }
+        }
+        out.ascii('"');
+    }
+
+    /** UTF-8 encodes into a fixed buffer and drains it to the channel when full. */
+    private static final class RowWriter {
+        private final WritableByteChannel channel;
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        private final byte[] digits = new byte[11];
+        private int size;
+
+        RowWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void ascii(char c) throws IOException {
+            ensure(1);
+            bytes[size++] = (byte) c;
+        }
+
+        void ascii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                ascii(s.charAt(i));
+            }
+        }
+
+        void text(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    ascii(c);
+                } else {
+                    i += character(s, i) - 1;
+                }
+            }
+        }
+
+        // Encodes the code point at index and returns how many chars it spans
+        int character(String s, int index) throws IOException {
+            int cp = s.codePointAt(index);
+            ensure(4);
+            if (cp < 0x80) {
+                bytes[size++] = (byte) cp;
+            } else if (cp < 0x800) {
+                bytes[size++] = (byte) (0xC0 | (cp >> 6));
+                bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (cp < 0x10000) {
+                if (Character.isSurrogate((char) cp)) {
+                    // Unpaired surrogate: not encodable, same replacement String.getBytes uses
+                    bytes[size++] = '?';
+                    return 1;
+                }
+                bytes[size++] = (byte) (0xE0 | (cp >> 12));
+                bytes[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                bytes[size++] = (byte) (0xF0 | (cp >> 18));
+                bytes[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            return Character.charCount(cp);
+        }
+
+        void number(int value) throws IOException {
+            if (value == Integer.MIN_VALUE) {
+                ascii(Integer.toString(value));
+                return;
+            }
+            if (value < 0) {
+                ascii('-');
+                value = -value;
+            }
+            int start = digits.length;
+            do {
+                digits[--start] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            ensure(digits.length - start);
+            System.arraycopy(digits, start, bytes, size, digits.length - start);
+            size += digits.length - start;
+        }
+
+        void flush() throws IOException {
+            buffer.clear().limit(size);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            size = 0;
+        }
+
+        private void ensure(int count) throws IOException {
+            if (size + count > bytes.length) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The live counters behind {@link FacetCounts}. Every change is O(1): a
+ * book touches one genre, one publisher and one decade counter plus the
+ * total. Books are added and removed under the catalog write lock; the
+ * available counts also move under the read lock, as circulation takes the
+ * last copy of a book or brings one back, so they are atomic.
+ */
+final class CatalogFacets {
+    private final Counter total = new Counter();
+    private final Map<String, Counter> genres = new ConcurrentHashMap<>();
+    private final Map<String, Counter> publishers = new ConcurrentHashMap<>();
+    private final Map<Integer, Counter> decades = new ConcurrentHashMap<>();
+
+    private static final class Counter {
+        final AtomicInteger books = new AtomicInteger();
+        final AtomicInteger available = new AtomicInteger();
+
+        FacetCounts.Count read() {
+            return new FacetCounts.Count(books.get(), available.get());
+        }
+    }
+
+    /** Counts a book that has just been catalogued. Caller holds the write lock. */
+    void add(Book book) {
+        int available = book.isAvailable() ? 1 : 0;
+        for (Counter counter : counters(book)) {
+            counter.books.incrementAndGet();
+            counter.available.addAndGet(available);
+        }
+    }
+
+    /** Uncounts a book that has just been removed or replaced. Caller holds the write lock. */
+    void remove(Book book) {
+        int available = book.isAvailable() ? 1 : 0;
+        for (Counter counter : counters(book)) {
+            counter.books.decrementAndGet();
+            counter.available.addAndGet(-available);
+        }
+        // No circulation can reach a value without books, so empty counters can go
+        removeIfEmpty(genres, FacetCounts.genreOf(book));
+        removeIfEmpty(publishers, FacetCounts.publisherOf(book));
+        removeIfEmpty(decades, FacetCounts.decadeOf(book));
+    }
+
+    /**
+     * Records a catalogued book going from no copies on the shelf to some
+     * ({@code available}) or back. Caller holds the read lock, so the book
+     * is still the catalogued one.
+     */
+    void availabilityChanged(Book book, boolean available) {
+        int delta = available ? 1 : -1;
+        for (Counter counter : counters(book)) {
+            counter.available.addAndGet(delta);
+        }
+    }
+
+    /** Recounts from scratch, after a load. Nothing else may touch the counters meanwhile. */
+    void recount(Iterable<Book> books) {
+        total.books.set(0);
+        total.available.set(0);
+        genres.clear();
+        publishers.clear();
+        decades.clear();
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    FacetCounts snapshot() {
+        return new FacetCounts(total.read(), read(genres), read(publishers), read(decades));
+    }
+
+    private static <K> Map<K, FacetCounts.Count> read(Map<K, Counter> counters) {
+        Map<K, FacetCounts.Count> counts = new TreeMap<>();
+        for (Map.Entry<K, Counter> entry : counters.entrySet()) {
+            FacetCounts.Count count = entry.getValue().read();
+            if (count.getBooks() > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private Counter[] counters(Book book) {
+        return new Counter[] {
+                total,
+                genres.computeIfAbsent(FacetCounts.genreOf(book), k -> new Counter()),
+                publishers.computeIfAbsent(FacetCounts.publisherOf(book), k -> new Counter()),
+                decades.computeIfAbsent(FacetCounts.decadeOf(book), k -> new Counter())
+        };
+    }
+
+    private static <K> void removeIfEmpty(Map<K, Counter> counters, K key) {
+        Counter counter = counters.get(key);
+        if (counter != null && counter.books.get() == 0) {
+            counters.remove(key, counter);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.library.data;
+
+import com.library.models.Book;
+import com.library.models.Isbn;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Streams CSV or MARC21 catalog feeds into {@link DataStorage}.
+ *
+ * <p>A reader thread frames raw records into chunks, a pool of parser
+ * threads maps the chunks to books in parallel, and the calling thread
+ * consumes the parsed chunks in feed order: it drops ISBNs already seen
+ * in the feed, checks the rest against the catalog and commits them as
+ * {@link CatalogBatch}es of {@link #setBatchSize batchSize} books. At most
+ * two chunks per parser are in flight, so memory stays bounded by the
+ * batch size and the set of ISBN keys seen, whatever the size of the feed.
+ *
+ * <p>Records that cannot be mapped are counted and sampled in the
+ * {@link ImportReport}; they never fail the import. Batches already
+ * committed stay committed if the import fails or is interrupted.
+ */
+public class CatalogImporter {
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REJECT_SAMPLES = 100;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+    private static final AtomicInteger RUN_NUMBER = new AtomicInteger();
+
+    private final DataStorage storage;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean updateExisting;
+    private Consumer<ImportReport> progressListener;
+
+    public CatalogImporter(DataStorage storage) {
+        this.storage = storage;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** Replace catalogued books whose ISBN appears in the feed; by default they are skipped as duplicates. */
+    public void setUpdateExisting(boolean updateExisting) {
+        this.updateExisting = updateExisting;
+    }
+
+    /** Called on the importing thread after each batch and a few times a second while parsing. */
+    public void setProgressListener(Consumer<ImportReport> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /** Imports a feed, choosing the format by extension: .csv, or .mrc/.marc for MARC21. */
+    public ImportReport importFile(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return importCsv(file);
+        }
+        if (name.endsWith(".mrc") || name.endsWith(".marc")) {
+            return importMarc(file);
+        }
+        throw new IOException("Unsupported feed format: " + file.getName());
+    }
+
+    public ImportReport importCsv(File file) throws IOException {
+        try (CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+             CsvFeedReader reader = new CsvFeedReader(in)) {
+            return run(reader, in, file.length());
+        }
+    }
+
+    public ImportReport importMarc(File file) throws IOException {
+        try (CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+             MarcFeedReader reader = new MarcFeedReader(in)) {
+            return run(reader, in, file.length());
+        }
+    }
+
+    private <R> ImportReport run(FeedReader<R> reader, CountingInputStream in, long totalBytes) throws IOException {
+        int runNumber = RUN_NUMBER.incrementAndGet();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "import-parser-" + runNumber);
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<ParsedChunk>> chunks = new ArrayBlockingQueue<>(threads * 2);
+        Thread framer = new Thread(() -> frame(reader, parsers, chunks), "import-reader-" + runNumber);
+        framer.setDaemon(true);
+
+        Run run = new Run(in, totalBytes);
+        framer.start();
+        try {
+            for (;;) {
+                ParsedChunk chunk = chunks.take().get();
+                if (chunk == ParsedChunk.END) {
+                    break;
+                }
+                run.accept(chunk);
+            }
+            run.flush();
+            DataStorage.awaitDurable(run.durable);
+            ImportReport report = run.report(true);
+            publish(report);
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted after " + run.recordsRead + " records");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } finally {
+            framer.interrupt();
+            parsers.shutdownNow();
+        }
+    }
+
+    // Runs on the reader thread: frames records into chunks and hands them to the parsers in order
+    private <R> void frame(FeedReader<R> reader, ExecutorService parsers, BlockingQueue<Future<ParsedChunk>> chunks) {
+        try {
+            long firstRecord = 1;
+            List<R> records = new ArrayList<>(CHUNK_SIZE);
+            R record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+                if (records.size() == CHUNK_SIZE) {
+                    chunks.put(submit(reader, parsers, records, firstRecord));
+                    firstRecord += records.size();
+                    records = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!records.isEmpty()) {
+                chunks.put(submit(reader, parsers, records, firstRecord));
+            }
+            chunks.put(CompletableFuture.completedFuture(ParsedChunk.END));
+        } catch (InterruptedException e) {
+            // The importing thread gave up; nothing is waiting for more chunks
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<ParsedChunk> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            try {
+                chunks.put(failed);
+            } catch (InterruptedException ignored) {
+                // The importing thread is gone already
+            }
+        }
+    }
+
+    private static <R> Future<ParsedChunk> submit(FeedReader<R> reader, ExecutorService parsers,
+                                                  List<R> records, long firstRecord) {
+        return parsers.submit(() -> {
+            ParsedChunk chunk = new ParsedChunk(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    chunk.books.add(reader.parse(records.get(i)));
+                } catch (RuntimeException e) {
+                    String reason = e.getMessage() != null ? e.getMessage() : e.toString();
+                    chunk.rejects.add("record " + (firstRecord + i) + ": " + reason);
+                }
+            }
+            return chunk;
+        });
+    }
+
+    private void publish(ImportReport report) {
+        Consumer<ImportReport> listener = progressListener;
+        if (listener != null) {
+            listener.accept(report);
+        }
+    }
+
+    private static final class ParsedChunk {
+        static final ParsedChunk END = new ParsedChunk(0);
+
+        final int records;
+        final List<Book> books;
+        final List<String> rejects = new ArrayList<>();
+
+        ParsedChunk(int records) {
+            this.records = records;
+            this.books = new ArrayList<>(records);
+        }
+    }
+
+    /** State of one import; only touched by the importing thread. */
+    private final class Run {
+        private final CountingInputStream in;
+        private final long totalBytes;
+        private final long started = System.nanoTime();
+        private final Set<String> seen = new HashSet<>();
+        private final List<Book> pending = new ArrayList<>();
+        private final List<String> rejectSamples = new ArrayList<>();
+        private CompletableFuture<Boolean> durable = CompletableFuture.completedFuture(true);
+        private long lastProgress = started;
+        private long recordsRead, added, updated, duplicates, rejected;
+
+        Run(CountingInputStream in, long totalBytes) {
+            this.in = in;
+            this.totalBytes = totalBytes;
+        }
+
+        void accept(ParsedChunk chunk) {
+            recordsRead += chunk.records;
+            rejected += chunk.rejects.size();
+            for (String reject : chunk.rejects) {
+                if (rejectSamples.size() < MAX_REJECT_SAMPLES) {
+                    rejectSamples.add(reject);
+                }
+            }
+            for (Book book : chunk.books) {
+                if (!seen.add(Isbn.normalize(book.getIsbn()))) {
+                    duplicates++;
+                    continue;
+                }
+                pending.add(book);
+                if (pending.size() >= batchSize) {
+                    flush();
+                }
+            }
+            if (System.nanoTime() - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                publish(report(false));
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            for (int attempt = 1; ; attempt++) {
+                CatalogBatch batch = storage.newBatch();
+                int adds = 0, updates = 0, skipped = 0;
+                for (Book book : pending) {
+                    if (storage.findBookByIsbn(book.getIsbn()) == null) {
+                        batch.add(book);
+                        adds++;
+                    } else if (updateExisting) {
+                        batch.update(book);
+                        updates++;
+                    } else {
+                        skipped++;
+                    }
+                }
+                try {
+                    if (!batch.isEmpty()) {
+                        // Journal records complete in order, so the last batch's future covers the earlier ones
+                        durable = batch.commitAsync();
+                    }
+                    added += adds;
+                    updated += updates;
+                    duplicates += skipped;
+                    break;
+                } catch (CatalogBatch.ValidationException e) {
+                    // Someone changed one of these ISBNs between the check and the commit; classify again
+                    if (attempt == 3) {
+                        throw e;
+                    }
+                }
+            }
+            pending.clear();
+            publish(report(false));
+        }
+
+        ImportReport report(boolean finished) {
+            lastProgress = System.nanoTime();
+            return new ImportReport(recordsRead, added, updated, duplicates, rejected, in.count, totalBytes,
+                    lastProgress - started, finished, new ArrayList<>(rejectSamples));
+        }
+    }
+
+    /** Counts bytes pulled from the file, for progress reporting. */
+    private static final class CountingInputStream extends FilterInputStream {
+        // Written by the reader thread only
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
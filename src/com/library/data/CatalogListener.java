@@ -0,0 +1,10 @@
+package com.library.data;
+
+/**
+ * Receives catalog changes. Listeners are called while the catalog write
+ * lock is held, which keeps events in order, so they must return quickly
+ * and hand any real work off to another thread (e.g. the EDT).
+ */
+public interface CatalogListener {
+    void catalogChanged(CatalogEvent event);
+}
@@ -0,0 +1,34 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable view of the catalog at a given version. Snapshots are shared
+ * by all readers until the catalog changes, so holding one costs nothing;
+ * compare {@link #getVersion()} with {@link DataStorage#getCatalogVersion()}
+ * to find out whether it is still current.
+ */
+public final class CatalogSnapshot {
+    private final long version;
+    private final List<Book> books;
+
+    CatalogSnapshot(long version, List<Book> books) {
+        this.version = version;
+        this.books = Collections.unmodifiableList(books);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** Books in catalog order. The list is unmodifiable. */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public int size() {
+        return books.size();
+    }
+}
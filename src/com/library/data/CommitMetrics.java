@@ -0,0 +1,43 @@
+package com.library.data;
+
+/** Point-in-time statistics of the journal's group commits. */
+public final class CommitMetrics {
+    private final long commits;
+    private final long records;
+    private final int maxBatchSize;
+    private final long totalLatencyNanos;
+    private final long maxLatencyNanos;
+
+    CommitMetrics(long commits, long records, int maxBatchSize, long totalLatencyNanos, long maxLatencyNanos) {
+        this.commits = commits;
+        this.records = records;
+        this.maxBatchSize = maxBatchSize;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /** Number of fsyncs performed. */
+    public long getCommits() { return commits; }
+    /** Number of records made durable. */
+    public long getRecords() { return records; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+
+    public double getAverageBatchSize() {
+        return commits == 0 ? 0 : (double) records / commits;
+    }
+
+    /** Mean time from a record being submitted to it being on disk. */
+    public double getAverageLatencyMillis() {
+        return records == 0 ? 0 : totalLatencyNanos / 1e6 / records;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("commits=%d records=%d avgBatch=%.1f maxBatch=%d avgLatency=%.2fms maxLatency=%.2fms",
+                commits, records, getAverageBatchSize(), maxBatchSize, getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
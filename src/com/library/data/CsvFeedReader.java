@@ -0,0 +1,144 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV feed with a header row. Columns are matched by name,
+ * ignoring case, spaces and underscores: isbn and title are required;
+ * author, genre, publisher, year (or publication year), copies (or total
+ * copies) and description are optional. Quoted fields may span lines.
+ */
+class CsvFeedReader extends FeedReader<String> {
+    private static final int DEFAULT_COPIES = 1;
+
+    private final BufferedReader in;
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    CsvFeedReader(InputStream stream) throws IOException {
+        in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+        String header = next();
+        if (header == null) {
+            throw new IOException("CSV feed is empty");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(columnKey(names.get(i)), i);
+        }
+        alias("publicationyear", "year");
+        alias("totalcopies", "copies");
+        if (!columns.containsKey("isbn") || !columns.containsKey("title")) {
+            throw new IOException("CSV header must contain isbn and title columns: " + header);
+        }
+    }
+
+    // Joins physical lines until the quotes balance, so embedded newlines stay in one record
+    @Override
+    String next() throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            return null;
+        }
+        if (countQuotes(line) % 2 == 0) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        int quotes = countQuotes(line);
+        while (quotes % 2 != 0 && (line = in.readLine()) != null) {
+            record.append('\n').append(line);
+            quotes += countQuotes(line);
+        }
+        return record.toString();
+    }
+
+    @Override
+    Book parse(String record) {
+        List<String> fields = split(record);
+        return toBook(field(fields, "isbn"), field(fields, "title"), field(fields, "author"),
+                field(fields, "genre"), field(fields, "publisher"),
+                number(fields, "year", 0), number(fields, "copies", DEFAULT_COPIES),
+                field(fields, "description"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private int number(List<String> fields, String column, int defaultValue) {
+        String value = clean(field(fields, column));
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + column + " \"" + value + "\"");
+        }
+    }
+
+    private void alias(String name, String canonical) {
+        if (!columns.containsKey(canonical) && columns.containsKey(name)) {
+            columns.put(canonical, columns.get(name));
+        }
+    }
+
+    private static String columnKey(String name) {
+        return name.trim().replace(" ", "").replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static int countQuotes(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static List<String> split(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -1,62 +1,469 @@
 package com.library.data;
 
 import com.library.models.Book;
+import com.library.models.BorrowRecord;
+import com.library.models.Isbn;
+import com.library.models.Reservation;
 import com.library.models.User;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+/**
+ * Central store for users and books.
+ *
+ * <p>Thread-safety: readers (find, search, getAllBooks) share a read lock on
+ * the catalog and never block each other. Mutations of a book are serialized
+ * by a lock striped on its normalized ISBN, which is held while the change is
+ * applied and journaled; the catalog write lock is only taken for the
+ * in-memory update itself, so writers to different books run concurrently.
+ * A {@link CatalogBatch} takes the stripes of all its books (in stripe
+ * order) and a single write-lock section, so readers see all of it or none.
+ *
+ * <p>Circulation changes a book's available copies in place with a
+ * compare-and-set under the shared read lock; the read lock only keeps a
+ * concurrent update from swapping the book out underneath. Availability is
+ * therefore not versioned: views and snapshots see the new count through
+ * the shared {@link Book} objects. The borrow log is the source of truth for
+ * loans, and availability is recomputed from it at startup. While a book has
+ * holds, returned copies go to the patrons in its hold queue in order.
+ * Facet counts ({@link #getFacetCounts()}) are updated on the same paths:
+ * by catalog changes under the write lock, and by circulation when a book
+ * runs out of copies or gets one back.
+ *
+ * <p>Startup loads users on the calling thread and the catalog, loans and
+ * holds on a background thread, so login does not wait for a large catalog.
+ * Book and circulation methods block until {@link #whenCatalogReady()}
+ * completes.
+ *
+ * <p>The catalog is held on the heap by default. Run with
+ * {@code -Dlibrary.catalog.store=offheap} to keep it in off-heap columns
+ * instead ({@link OffHeapBookStore}), which keeps collections short for
+ * catalogs of millions of titles at the cost of scanning on search.
+ */
 public class DataStorage {
-    private static DataStorage instance;
+    // Number of journal records after which the journal is compacted into a snapshot
+    private static final int CHECKPOINT_INTERVAL = 1000;
+    // Journal size that also triggers one, so a few large import batches cannot grow it unbounded
+    private static final long CHECKPOINT_JOURNAL_BYTES = Long.getLong("library.checkpoint.journalBytes", 16L << 20);
+    // Run -Dlibrary.search.verify=true to cross-check indexed search against a full scan
+    private static final boolean VERIFY_SEARCH = Boolean.getBoolean("library.search.verify");
+    private static final boolean OFF_HEAP_CATALOG = "offheap".equals(System.getProperty("library.catalog.store"));
+    private static final int BOOK_LOCK_STRIPES = 64;
+    // Sorted/filtered views kept for paging; a view is rebuilt when the catalog version moves on
+    private static final int MAX_CACHED_VIEWS = 8;
+    private static final long LOAN_PERIOD_MILLIS = TimeUnit.DAYS.toMillis(14);
+
+    // Per-operation latency timers, published over JMX (see Metrics)
+    private static final OperationMetrics LOAD_DATA = Metrics.operation("DataStorage.loadData");
+    private static final OperationMetrics LOAD_CATALOG = Metrics.operation("DataStorage.loadCatalog");
+    private static final OperationMetrics SAVE_DATA = Metrics.operation("DataStorage.saveData");
+    private static final OperationMetrics AUTHENTICATE_USER = Metrics.operation("DataStorage.authenticateUser");
+    private static final OperationMetrics REGISTER_USER = Metrics.operation("DataStorage.registerUser");
+    private static final OperationMetrics GET_ALL_BOOKS = Metrics.operation("DataStorage.getAllBooks");
+    private static final OperationMetrics GET_CATALOG_SNAPSHOT = Metrics.operation("DataStorage.getCatalogSnapshot");
+    private static final OperationMetrics GET_BOOK_PAGE = Metrics.operation("DataStorage.getBookPage");
+    private static final OperationMetrics GET_FACET_COUNTS = Metrics.operation("DataStorage.getFacetCounts");
+    private static final OperationMetrics ADD_BOOK = Metrics.operation("DataStorage.addBook");
+    private static final OperationMetrics ADD_BOOK_ASYNC = Metrics.operation("DataStorage.addBookAsync");
+    private static final OperationMetrics REMOVE_BOOK = Metrics.operation("DataStorage.removeBook");
+    private static final OperationMetrics REMOVE_BOOK_ASYNC = Metrics.operation("DataStorage.removeBookAsync");
+    private static final OperationMetrics FIND_BOOK_BY_ISBN = Metrics.operation("DataStorage.findBookByIsbn");
+    private static final OperationMetrics SEARCH_BOOKS = Metrics.operation("DataStorage.searchBooks");
+    private static final OperationMetrics UPDATE_BOOK = Metrics.operation("DataStorage.updateBook");
+    private static final OperationMetrics UPDATE_BOOK_ASYNC = Metrics.operation("DataStorage.updateBookAsync");
+    private static final OperationMetrics APPLY_BATCH = Metrics.operation("DataStorage.applyBatch");
+    private static final OperationMetrics CHECKOUT_BOOK = Metrics.operation("DataStorage.checkoutBook");
+    private static final OperationMetrics RETURN_BOOK = Metrics.operation("DataStorage.returnBook");
+    private static final OperationMetrics RESERVE_BOOK = Metrics.operation("DataStorage.reserveBook");
+    private static final OperationMetrics CANCEL_RESERVATION = Metrics.operation("DataStorage.cancelReservation");
+    private static final OperationMetrics GET_RESERVATION_POSITION = Metrics.operation("DataStorage.getReservationPosition");
+    private static final OperationMetrics GET_RESERVATIONS = Metrics.operation("DataStorage.getReservations");
+    private static final OperationMetrics GET_ACTIVE_LOANS = Metrics.operation("DataStorage.getActiveLoans");
+    private static final OperationMetrics GET_LOANS_FOR_BOOK = Metrics.operation("DataStorage.getLoansForBook");
+    private static final OperationMetrics GET_OVERDUE_LOANS = Metrics.operation("DataStorage.getOverdueLoans");
+
     private List<User> users;
-    private List<Book> books;
-    private User currentUser;
+    // Case-normalized username -> user, kept in step with the users list
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+    private BookStore books;
+    private final CatalogFacets facets = new CatalogFacets();
+    private volatile User currentUser;
+    private final AtomicInteger journalEntries = new AtomicInteger();
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+    private final List<CatalogListener> catalogListeners = new CopyOnWriteArrayList<>();
+    private final LoanIndex activeLoans = new LoanIndex();
+    private final OverdueScheduler overdueScheduler = new OverdueScheduler(activeLoans);
+    private final ReservationQueues reservations = new ReservationQueues();
+    private final AtomicLong lastLoanId = new AtomicLong();
+    private final Map<String, CatalogView> views = new LinkedHashMap<String, CatalogView>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CatalogView> eldest) {
+            return size() > MAX_CACHED_VIEWS;
+        }
+    };
+
+    private final ReentrantReadWriteLock catalogLock = new ReentrantReadWriteLock();
+    private final Lock[] bookLocks = new Lock[BOOK_LOCK_STRIPES];
+    private final Lock checkpointLock = FileHandler.checkpointLock;
+    // Checkpoints triggered by the journal length run here, off the writers' threads and locks
+    private final ExecutorService checkpointExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+    // Completed by the catalog loader; book and circulation methods wait on it
+    private final CompletableFuture<Void> catalogReady = new CompletableFuture<>();
 
     private DataStorage() {
+        for (int i = 0; i < bookLocks.length; i++) {
+            bookLocks[i] = new ReentrantLock();
+        }
         loadData();
-        // If no data exists, initialize with sample data
-        if (users.isEmpty() || books.isEmpty()) {
-            initializeSampleData();
+    }
+
+    // Initialization-on-demand holder: lazy and thread-safe without locking on every call
+    private static class Holder {
+        static final DataStorage INSTANCE = new DataStorage();
+    }
+
+    public static DataStorage getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Loads users and the journal's user registrations on the calling thread,
+     * so login works as soon as the instance exists, and starts the catalog
+     * loader. Book entries in the journal are handed to the loader still
+     * encoded, to be decoded and replayed after the snapshot they apply to.
+     */
+    private void loadData() {
+        long start = LOAD_DATA.start();
+        try {
+            // Load users
+            users = new CopyOnWriteArrayList<>();
+            for (User user : FileHandler.loadUsers()) {
+                putUser(user);
+            }
+
+            // Replay mutations recorded since the last checkpoint; registrations now, the rest with the catalog
+            List<byte[]> journal = FileHandler.loadJournal();
+            List<byte[]> bookEntries = new ArrayList<>();
+            for (byte[] record : journal) {
+                if (JournalEntry.typeOf(record) == JournalEntry.Type.REGISTER_USER) {
+                    applyRecord(record);
+                } else {
+                    bookEntries.add(record);
+                }
+            }
+            journalEntries.set(journal.size());
+
+            // If no users exist, initialize with the sample accounts
+            boolean seeded = users.isEmpty();
+            if (seeded) {
+                initializeSampleUsers();
+            }
+
+            books = OFF_HEAP_CATALOG ? new OffHeapBookStore() : new BookCatalog();
+            Thread loader = new Thread(() -> loadCatalog(bookEntries, seeded), "catalog-loader");
+            loader.setDaemon(true);
+            loader.start();
+        } finally {
+            LOAD_DATA.stop(start);
+        }
+    }
+
+    /**
+     * Loads the books, then the loans and holds that refer to them, and
+     * completes {@link #whenCatalogReady()}. Nothing reads the catalog before
+     * that, so the loader needs no lock; completing the future publishes its
+     * writes. Startup only writes a checkpoint if sample data was added.
+     */
+    private void loadCatalog(List<byte[]> bookEntries, boolean usersSeeded) {
+        long start = LOAD_CATALOG.start();
+        boolean seeded = usersSeeded;
+        try {
+            for (BookPartitions.Entry entry : FileHandler.loadBookEntries()) {
+                books.restore(entry.book, entry.sequence);
+            }
+            for (byte[] record : bookEntries) {
+                applyRecord(record);
+            }
+            // If no books exist, initialize with the sample catalog
+            if (books.isEmpty()) {
+                initializeSampleBooks();
+                seeded = true;
+            }
+
+            loadLoans();
+            loadReservations();
+        } catch (RuntimeException e) {
+            System.err.println("Error loading catalog: " + e.getMessage());
+        } finally {
+            // Counted once the loans have set availability; kept up to date from here on
+            facets.recount(books);
+            LOAD_CATALOG.stop(start);
+            catalogReady.complete(null);
+        }
+        if (seeded) {
             saveData();
+        } else if (checkpointDue()) {
+            scheduleCheckpoint();
         }
     }
 
-    public static DataStorage getInstance() {
-        if (instance == null) {
-            instance = new DataStorage();
+    /**
+     * Completes once the catalog, loans and holds are loaded. Book and
+     * circulation methods called earlier block until then; user methods
+     * never wait.
+     */
+    public CompletableFuture<Void> whenCatalogReady() {
+        // A dependent stage, so callers cannot complete the real one
+        return catalogReady.thenApply(v -> v);
+    }
+
+    public boolean isCatalogReady() {
+        return catalogReady.isDone();
+    }
+
+    private void awaitCatalog() {
+        if (!catalogReady.isDone()) {
+            catalogReady.join();
         }
-        return instance;
     }
 
-    @SuppressWarnings("unchecked")
-    private void loadData() {
-        // Load users
-        List<Object> userObjects = FileHandler.loadUsers();
-        users = userObjects.stream()
-                .filter(obj -> obj instanceof User)
-                .map(obj -> (User) obj)
-                .collect(Collectors.toCollection(ArrayList::new));
+    private void loadReservations() {
+        for (Reservation reservation : FileHandler.loadReservations()) {
+            // A hand-off writes the hold's removal and the loan to different logs; if only the
+            // loan made it to disk, the hold was fulfilled
+            boolean fulfilled = false;
+            for (BorrowRecord loan : activeLoans.forUser(reservation.getUsername())) {
+                fulfilled |= Isbn.normalize(loan.getIsbn()).equals(Isbn.normalize(reservation.getIsbn()))
+                        && loan.getBorrowedAt() >= reservation.getPlacedAt();
+            }
+            if (fulfilled) {
+                FileHandler.appendReservation(reservation, false);
+            } else {
+                reservations.restore(reservation);
+            }
+        }
+    }
 
-        // Load books
-        List<Object> bookObjects = FileHandler.loadBooks();
-        books = bookObjects.stream()
-                .filter(obj -> obj instanceof Book)
-                .map(obj -> (Book) obj)
-                .collect(Collectors.toCollection(ArrayList::new));
+    private void loadLoans() {
+        for (BorrowRecord record : FileHandler.loadBorrowRecords()) {
+            lastLoanId.accumulateAndGet(record.getId(), Math::max);
+            if (record.isReturned()) {
+                activeLoans.remove(record.getId());
+            } else {
+                activeLoans.add(record);
+            }
+        }
+        for (Book book : books) {
+            int out = activeLoans.countForIsbn(book.getIsbn());
+            book.setAvailableCopies(Math.max(0, book.getTotalCopies() - out));
+        }
     }
 
+    /**
+     * Writes a full snapshot of users and books and compacts the journal.
+     * Regular mutations only append to the journal; this runs periodically.
+     */
     public void saveData() {
-        FileHandler.saveUsers(new ArrayList<>(users));
-        FileHandler.saveBooks(new ArrayList<>(books));
-        FileHandler.createBackup();
+        long start = SAVE_DATA.start();
+        try {
+            awaitCatalog();
+            checkpointLock.lock();
+            try {
+                // Rotate before capturing: anything applied after the capture is
+                // appended to the new journal, and replaying an entry the snapshot
+                // already reflects is harmless.
+                FileHandler.rotateJournal();
+                journalEntries.set(0);
+                // Only partitions changed since the last checkpoint are written; until the catalog
+                // has been split into partitions, all of them are
+                List<List<BookPartitions.Entry>> partitions = readCatalog(() -> {
+                    long dirty = books.takeDirtyPartitions();
+                    return books.partitionContents(FileHandler.hasBookPartitions() ? dirty : BookPartitions.ALL);
+                });
+                boolean saved = FileHandler.saveUsers(users);
+                // A partition quarantined at startup always fails, so the journal is kept for it
+                long failed = FileHandler.saveBookPartitions(partitions);
+                if (failed != 0) {
+                    books.markDirty(failed);
+                    saved = false;
+                }
+                if (saved) {
+                    FileHandler.discardRotatedJournal();
+                }
+                FileHandler.compactReservations(reservations::all);
+                FileHandler.scheduleBackup();
+            } finally {
+                checkpointLock.unlock();
+            }
+        } finally {
+            SAVE_DATA.stop(start);
+        }
+    }
+
+    private CompletableFuture<Boolean> recordMutation(JournalEntry entry) {
+        CompletableFuture<Boolean> durable = FileHandler.appendJournal(entry).thenApply(v -> true);
+        // Counted per journal record, and by journal size so large import batches still trigger
+        // checkpoints without forcing one per batch. Registrations made while the catalog is
+        // loading are checkpointed once it has loaded
+        journalEntries.incrementAndGet();
+        if (checkpointDue() && catalogReady.isDone()) {
+            scheduleCheckpoint();
+        }
+        return durable;
+    }
+
+    private boolean checkpointDue() {
+        return journalEntries.get() >= CHECKPOINT_INTERVAL || FileHandler.journalBytes() >= CHECKPOINT_JOURNAL_BYTES;
+    }
+
+    // The caller may hold book stripe locks, so the checkpoint only gets queued here
+    private void scheduleCheckpoint() {
+        if (checkpointQueued.compareAndSet(false, true)) {
+            checkpointExecutor.execute(() -> {
+                checkpointQueued.set(false);
+                saveData();
+            });
+        }
+    }
+
+    // Blocks until a mutation is on disk. A failed write is reported and
+    // returns false; the in-memory change stands, but callers must not be
+    // told it was saved.
+    static boolean awaitDurable(CompletableFuture<Boolean> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            System.err.println("Error persisting change: " + e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    private <T> T readCatalog(Supplier<T> action) {
+        awaitCatalog();
+        catalogLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    private <T> T writeCatalog(Supplier<T> action) {
+        awaitCatalog();
+        catalogLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
     }
 
-    private void initializeSampleData() {
+    public void addCatalogListener(CatalogListener listener) {
+        catalogListeners.add(listener);
+    }
+
+    public void removeCatalogListener(CatalogListener listener) {
+        catalogListeners.remove(listener);
+    }
+
+    // Must be called with the catalog write lock held so events stay in version order
+    private void fireCatalogEvent(CatalogEvent.Type type, int position, Book book) {
+        if (catalogListeners.isEmpty()) {
+            return;
+        }
+        CatalogEvent event = new CatalogEvent(type, position, book, books.version());
+        for (CatalogListener listener : catalogListeners) {
+            listener.catalogChanged(event);
+        }
+    }
+
+    private Lock bookLock(String isbn) {
+        return bookLocks[stripe(isbn)];
+    }
+
+    private static int stripe(String isbn) {
+        int hash = isbn == null ? 0 : Isbn.normalize(isbn).hashCode();
+        return (hash ^ (hash >>> 16)) & (BOOK_LOCK_STRIPES - 1);
+    }
+
+    // A record that cannot be decoded is reported and skipped; its checksum passed, so the rest still applies
+    private void applyRecord(byte[] record) {
+        try {
+            applyEntry(JournalEntry.decode(record));
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable journal record: " + e.getMessage());
+        }
+    }
+
+    // Replay must be idempotent: an entry may already be reflected in the snapshot
+    private void applyEntry(JournalEntry entry) {
+        switch (entry.getType()) {
+            case ADD_BOOK:
+            case UPDATE_BOOK:
+                books.put(entry.getBook());
+                break;
+            case REMOVE_BOOK:
+                books.remove(entry.getIsbn());
+                break;
+            case REGISTER_USER:
+                putUser(entry.getUser());
+                break;
+            case BATCH:
+                for (JournalEntry operation : entry.getEntries()) {
+                    applyEntry(operation);
+                }
+                break;
+        }
+    }
+
+    private void putUser(User user) {
+        User previous = usersByName.put(usernameKey(user.getUsername()), user);
+        if (previous != null) {
+            users.remove(previous);
+        }
+        users.add(user);
+    }
+
+    private static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private void initializeSampleUsers() {
         // Initialize default admin user
-        users.add(new User("admin", "admin123", "admin", "System Administrator", "admin@library.com", "123-456-7890"));
-        users.add(new User("librarian", "lib123", "librarian", "Jane Smith", "jane@library.com", "123-456-7891"));
-        users.add(new User("user", "user123", "user", "John Doe", "john@email.com", "123-456-7892"));
-        
+        putUser(new User("admin", "admin123", "admin", "System Administrator", "admin@library.com", "123-456-7890"));
+        putUser(new User("librarian", "lib123", "librarian", "Jane Smith", "jane@library.com", "123-456-7891"));
+        putUser(new User("user", "user123", "user", "John Doe", "john@email.com", "123-456-7892"));
+    }
+
+    private void initializeSampleBooks() {
         // Initialize sample books
         books.add(new Book("978-0134685991", "Effective Java", "Joshua Bloch", "Programming", 
                           "Addison-Wesley", 2018, 5, "A comprehensive guide to Java programming best practices"));
@@ -72,22 +479,38 @@ public class DataStorage {
 
     // User methods
     public User authenticateUser(String username, String password) {
-        return users.stream()
-                .filter(user -> user.getUsername().equals(username) && user.getPassword().equals(password))
-                .findFirst()
-                .orElse(null);
+        long start = AUTHENTICATE_USER.start();
+        try {
+            User user = usersByName.get(usernameKey(username));
+            return user != null && user.getPassword().equals(password) ? user : null;
+        } finally {
+            AUTHENTICATE_USER.stop(start);
+        }
     }
 
+    /**
+     * Registers a new patron. Usernames are unique ignoring case; the
+     * putIfAbsent on the index makes the check-and-insert atomic, so two
+     * concurrent registrations of the same name cannot both succeed.
+     */
     public boolean registerUser(String username, String password, String fullName, String email, String phoneNumber) {
-        // Check if username already exists
-        if (users.stream().anyMatch(user -> user.getUsername().equals(username))) {
-            return false;
+        long start = REGISTER_USER.start();
+        try {
+            User newUser = new User(username, password, "user", fullName, email, phoneNumber);
+            if (usersByName.putIfAbsent(usernameKey(username), newUser) != null) {
+                return false;
+            }
+
+            users.add(newUser);
+            return awaitDurable(recordMutation(JournalEntry.registerUser(newUser)));
+        } finally {
+            REGISTER_USER.stop(start);
         }
+    }
 
-        User newUser = new User(username, password, "user", fullName, email, phoneNumber);
-        users.add(newUser);
-        saveData();
-        return true;
+    /** Batch size and latency statistics of the journal's group commits. */
+    public CommitMetrics getCommitMetrics() {
+        return FileHandler.getJournalMetrics();
     }
 
     public void setCurrentUser(User user) {
@@ -103,48 +526,676 @@ public class DataStorage {
     }
 
     // Book methods
+    /** All books in catalog order, as an unmodifiable list shared with other readers. */
     public List<Book> getAllBooks() {
-        return new ArrayList<>(books);
+        long start = GET_ALL_BOOKS.start();
+        try {
+            return getCatalogSnapshot().getBooks();
+        } finally {
+            GET_ALL_BOOKS.stop(start);
+        }
+    }
+
+    public long getCatalogVersion() {
+        awaitCatalog();
+        return books.version();
+    }
+
+    /**
+     * Returns the current catalog snapshot. Mutations only bump the catalog
+     * version; the snapshot for a version is materialized once, on the first
+     * read after the change, and then shared by every reader.
+     */
+    public CatalogSnapshot getCatalogSnapshot() {
+        long start = GET_CATALOG_SNAPSHOT.start();
+        try {
+            awaitCatalog();
+            CatalogSnapshot current = snapshot.get();
+            if (current != null && current.getVersion() == books.version()) {
+                return current;
+            }
+            CatalogSnapshot fresh = readCatalog(() -> new CatalogSnapshot(books.version(), books.toList()));
+            // Never replace a newer snapshot published by a concurrent reader
+            return snapshot.accumulateAndGet(fresh,
+                    (published, built) -> published != null && published.getVersion() >= built.getVersion() ? published : built);
+        } finally {
+            GET_CATALOG_SNAPSHOT.stop(start);
+        }
+    }
+
+    /**
+     * Returns rows {@code [offset, offset + limit)} of the catalog filtered by
+     * {@code filter} (same semantics as {@link #searchBooks}; null or empty
+     * for no filter) and ordered by {@code sort}. Filtering and sorting run
+     * here, once per catalog version, so table models only hold the rows on screen.
+     */
+    public BookPage getBookPage(String filter, BookSort sort, boolean descending, int offset, int limit) {
+        long start = GET_BOOK_PAGE.start();
+        try {
+            CatalogView view = getView(filter == null ? "" : filter, sort, descending);
+            int from = Math.max(0, Math.min(offset, view.books.size()));
+            int to = Math.min(view.books.size(), from + Math.max(0, limit));
+            List<Book> rows = new ArrayList<>(view.books.subList(from, to));
+            return new BookPage(view.version, view.books.size(), from, rows);
+        } finally {
+            GET_BOOK_PAGE.stop(start);
+        }
+    }
+
+    private CatalogView getView(String filter, BookSort sort, boolean descending) {
+        String key = sort + (descending ? "-" : "+") + filter;
+        long version = books.version();
+        synchronized (views) {
+            CatalogView view = views.get(key);
+            if (view != null && view.version == version) {
+                return view;
+            }
+        }
+
+        CatalogView view;
+        if (filter.isEmpty()) {
+            CatalogSnapshot current = getCatalogSnapshot();
+            view = new CatalogView(current.getVersion(), current.getBooks());
+        } else {
+            view = readCatalog(() -> new CatalogView(books.version(), books.search(filter)));
+        }
+        Comparator<Book> comparator = sort.comparator();
+        if (comparator != null || descending) {
+            List<Book> ordered = new ArrayList<>(view.books);
+            if (comparator == null) {
+                Collections.reverse(ordered);
+            } else {
+                ordered.sort(descending ? comparator.reversed() : comparator);
+            }
+            view = new CatalogView(view.version, ordered);
+        }
+
+        synchronized (views) {
+            views.put(key, view);
+        }
+        return view;
+    }
+
+    /**
+     * Book counts by genre, publisher, publication decade and availability.
+     * The counters move with every catalog change and checkout, so this
+     * costs the number of distinct values, not a pass over the catalog.
+     */
+    public FacetCounts getFacetCounts() {
+        long start = GET_FACET_COUNTS.start();
+        try {
+            awaitCatalog();
+            return facets.snapshot();
+        } finally {
+            GET_FACET_COUNTS.stop(start);
+        }
+    }
+
+    private static class CatalogView {
+        final long version;
+        final List<Book> books;
+
+        CatalogView(long version, List<Book> books) {
+            this.version = version;
+            this.books = books;
+        }
+    }
+
+    /**
+     * Adds a book unless one with an equivalent ISBN is already catalogued.
+     * ISBNs are compared in normalized form (see {@link Isbn#normalize}).
+     * Also returns false if the add could not be written to disk.
+     */
+    public boolean addBook(Book book) {
+        long start = ADD_BOOK.start();
+        try {
+            return awaitDurable(addBookAsync(book));
+        } finally {
+            ADD_BOOK.stop(start);
+        }
     }
 
-    public void addBook(Book book) {
-        books.add(book);
-        saveData();
+    /**
+     * Applies the add immediately and returns a future that completes once it
+     * is durable; concurrent callers share journal fsyncs (group commit).
+     * Completes with false right away if the ISBN is already catalogued.
+     */
+    public CompletableFuture<Boolean> addBookAsync(Book book) {
+        long start = ADD_BOOK_ASYNC.start();
+        try {
+            Lock lock = bookLock(book.getIsbn());
+            lock.lock();
+            try {
+                boolean added = writeCatalog(() -> insertBook(book));
+                if (!added) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                return recordMutation(JournalEntry.addBook(book));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ADD_BOOK_ASYNC.stop(start);
+        }
     }
 
     public boolean removeBook(String isbn) {
-        boolean removed = books.removeIf(book -> book.getIsbn().equals(isbn));
-        if (removed) {
-            saveData();
+        long start = REMOVE_BOOK.start();
+        try {
+            return awaitDurable(removeBookAsync(isbn));
+        } finally {
+            REMOVE_BOOK.stop(start);
+        }
+    }
+
+    /** Like {@link #addBookAsync}: applied now, the future completes once durable. */
+    public CompletableFuture<Boolean> removeBookAsync(String isbn) {
+        long start = REMOVE_BOOK_ASYNC.start();
+        try {
+            Lock lock = bookLock(isbn);
+            lock.lock();
+            try {
+                Book removed = writeCatalog(() -> deleteBook(isbn));
+                if (removed == null) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                return recordMutation(JournalEntry.removeBook(isbn));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            REMOVE_BOOK_ASYNC.stop(start);
         }
-        return removed;
     }
 
     public Book findBookByIsbn(String isbn) {
-        return books.stream()
-                .filter(book -> book.getIsbn().equals(isbn))
-                .findFirst()
-                .orElse(null);
+        long start = FIND_BOOK_BY_ISBN.start();
+        try {
+            return readCatalog(() -> books.get(isbn));
+        } finally {
+            FIND_BOOK_BY_ISBN.stop(start);
+        }
     }
 
     public List<Book> searchBooks(String query) {
+        long start = SEARCH_BOOKS.start();
+        try {
+            return readCatalog(() -> {
+                List<Book> results = books.search(query);
+                if (VERIFY_SEARCH) {
+                    List<Book> scanned = scanBooks(query);
+                    if (!isbns(scanned).equals(isbns(results))) {
+                        System.err.println("Search index mismatch for \"" + query + "\": index returned "
+                                + results.size() + " books, scan returned " + scanned.size());
+                    }
+                }
+                return results;
+            });
+        } finally {
+            SEARCH_BOOKS.stop(start);
+        }
+    }
+
+    /**
+     * Streams the books {@link #searchBooks(String)} would return to
+     * {@code chunk} in catalog order, in lists of up to {@code chunkSize}, as
+     * they are found, so callers can show the first matches before the
+     * search is over. Stops early once {@code chunk} returns false or the
+     * calling thread is interrupted. Returns the number of books delivered.
+     * The catalog read lock is held throughout, so {@code chunk} should hand
+     * the books off rather than work on them.
+     */
+    public int searchBooks(String query, int chunkSize, Predicate<List<Book>> chunk) {
+        long start = SEARCH_BOOKS.start();
+        try {
+            return readCatalog(() -> {
+                SearchChunks chunks = new SearchChunks(chunkSize, chunk);
+                books.search(query, chunks);
+                chunks.flush();
+                return chunks.delivered;
+            });
+        } finally {
+            SEARCH_BOOKS.stop(start);
+        }
+    }
+
+    // Collects streamed matches into chunks for searchBooks(query, chunkSize, chunk)
+    private static final class SearchChunks implements Predicate<Book> {
+        private final int chunkSize;
+        private final Predicate<List<Book>> chunk;
+        private List<Book> pending = new ArrayList<>();
+        private boolean stopped;
+        int delivered;
+
+        SearchChunks(int chunkSize, Predicate<List<Book>> chunk) {
+            this.chunkSize = Math.max(1, chunkSize);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean test(Book book) {
+            pending.add(book);
+            return pending.size() < chunkSize || flush();
+        }
+
+        boolean flush() {
+            if (pending.isEmpty() || stopped) {
+                return !stopped;
+            }
+            List<Book> full = pending;
+            pending = new ArrayList<>();
+            delivered += full.size();
+            stopped = !chunk.test(full);
+            return !stopped;
+        }
+    }
+
+    // Compared by ISBN: the off-heap store hands out a new view on every read
+    private static List<String> isbns(List<Book> books) {
+        List<String> isbns = new ArrayList<>(books.size());
+        for (Book book : books) {
+            isbns.add(book.getIsbn());
+        }
+        return isbns;
+    }
+
+    // Linear scan kept as the reference implementation for index verification
+    private List<Book> scanBooks(String query) {
         String lowerQuery = query.toLowerCase();
-        return books.stream()
-                .filter(book -> book.getTitle().toLowerCase().contains(lowerQuery) ||
-                               book.getAuthor().toLowerCase().contains(lowerQuery) ||
-                               book.getGenre().toLowerCase().contains(lowerQuery) ||
-                               book.getIsbn().contains(query) ||
-                               book.getPublisher().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
-    }
-
-    public void updateBook(Book updatedBook) {
-        for (int i = 0; i < books.size(); i++) {
-            if (books.get(i).getIsbn().equals(updatedBook.getIsbn())) {
-                books.set(i, updatedBook);
-                saveData();
-                break;
+        List<Book> results = new ArrayList<>();
+        for (Book book : books) {
+            if (SearchIndex.matches(book, query, lowerQuery)) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    /** Replaces the book with an equivalent ISBN; returns false if there is none or the change could not be written. */
+    public boolean updateBook(Book updatedBook) {
+        long start = UPDATE_BOOK.start();
+        try {
+            return awaitDurable(updateBookAsync(updatedBook));
+        } finally {
+            UPDATE_BOOK.stop(start);
+        }
+    }
+
+    /** Like {@link #addBookAsync}: applied now, the future completes once durable. */
+    public CompletableFuture<Boolean> updateBookAsync(Book updatedBook) {
+        long start = UPDATE_BOOK_ASYNC.start();
+        try {
+            Lock lock = bookLock(updatedBook.getIsbn());
+            lock.lock();
+            try {
+                Book previous = writeCatalog(() -> replaceBook(updatedBook));
+                if (previous == null) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                return recordMutation(JournalEntry.updateBook(updatedBook));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            UPDATE_BOOK_ASYNC.stop(start);
+        }
+    }
+
+    /** Starts an empty batch; see {@link CatalogBatch}. */
+    public CatalogBatch newBatch() {
+        return new CatalogBatch(this);
+    }
+
+    // Validates the whole batch, then applies it in one write-lock section and journals it as one record
+    CompletableFuture<Boolean> applyBatch(List<JournalEntry> operations) {
+        long start = APPLY_BATCH.start();
+        try {
+            if (operations.isEmpty()) {
+                return CompletableFuture.completedFuture(false);
             }
+            // Lock stripes in index order so concurrent batches cannot deadlock
+            boolean[] stripes = new boolean[BOOK_LOCK_STRIPES];
+            for (JournalEntry operation : operations) {
+                stripes[stripe(operation.getIsbn())] = true;
+            }
+            List<Lock> held = new ArrayList<>();
+            try {
+                for (int i = 0; i < stripes.length; i++) {
+                    if (stripes[i]) {
+                        bookLocks[i].lock();
+                        held.add(bookLocks[i]);
+                    }
+                }
+                writeCatalog(() -> {
+                    validateBatch(operations);
+                    for (JournalEntry operation : operations) {
+                        switch (operation.getType()) {
+                            case ADD_BOOK:
+                                insertBook(operation.getBook());
+                                break;
+                            case UPDATE_BOOK:
+                                replaceBook(operation.getBook());
+                                break;
+                            default:
+                                deleteBook(operation.getIsbn());
+                                break;
+                        }
+                    }
+                    return null;
+                });
+                return recordMutation(JournalEntry.batch(operations));
+            } finally {
+                for (int i = held.size() - 1; i >= 0; i--) {
+                    held.get(i).unlock();
+                }
+            }
+        } finally {
+            APPLY_BATCH.stop(start);
+        }
+    }
+
+    // Simulates the batch against the catalog; must hold the write lock so the catalog cannot change underneath
+    private void validateBatch(List<JournalEntry> operations) {
+        // Normalized ISBN -> whether it is catalogued after the operations seen so far
+        Map<String, Boolean> present = new HashMap<>();
+        List<String> problems = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            JournalEntry operation = operations.get(i);
+            String isbn = operation.getIsbn();
+            if (isbn == null || isbn.trim().isEmpty()) {
+                problems.add("#" + i + " " + operation.getType() + ": missing ISBN");
+                continue;
+            }
+            String key = Isbn.normalize(isbn);
+            Boolean known = present.get(key);
+            boolean exists = known != null ? known : books.get(isbn) != null;
+            switch (operation.getType()) {
+                case ADD_BOOK:
+                    if (exists) {
+                        problems.add("#" + i + " ADD_BOOK: ISBN " + isbn + " is already catalogued");
+                    }
+                    present.put(key, true);
+                    break;
+                case UPDATE_BOOK:
+                    if (!exists) {
+                        problems.add("#" + i + " UPDATE_BOOK: no book with ISBN " + isbn);
+                    }
+                    break;
+                case REMOVE_BOOK:
+                    if (!exists) {
+                        problems.add("#" + i + " REMOVE_BOOK: no book with ISBN " + isbn);
+                    }
+                    present.put(key, false);
+                    break;
+                default:
+                    problems.add("#" + i + " " + operation.getType() + ": not a book operation");
+                    break;
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new CatalogBatch.ValidationException(problems);
         }
     }
-}
\ No newline at end of file
+
+    // The catalog mutations themselves; callers hold the write lock
+
+    private boolean insertBook(Book book) {
+        if (!books.add(book)) {
+            return false;
+        }
+        facets.add(book);
+        fireCatalogEvent(CatalogEvent.Type.INSERT, books.size() - 1, book);
+        return true;
+    }
+
+    private Book replaceBook(Book book) {
+        Book current = books.get(book.getIsbn());
+        if (current != null) {
+            // Copies on loan stay on loan; checkouts cannot race this, they hold the read lock
+            int out = current.getTotalCopies() - current.getAvailableCopies();
+            book.setAvailableCopies(Math.max(0, book.getTotalCopies() - out));
+        }
+        Book replaced = books.replace(book);
+        if (replaced != null) {
+            facets.remove(replaced);
+            facets.add(book);
+            fireCatalogEvent(CatalogEvent.Type.UPDATE, books.positionOf(book.getIsbn()), book);
+        }
+        return replaced;
+    }
+
+    private Book deleteBook(String isbn) {
+        int position = books.positionOf(isbn);
+        Book book = books.remove(isbn);
+        if (book != null) {
+            facets.remove(book);
+            fireCatalogEvent(CatalogEvent.Type.DELETE, position, book);
+        }
+        return book;
+    }
+
+    // Circulation methods
+    /**
+     * Lends one copy of the book to {@code user}. The copy is taken with a
+     * compare-and-set on the book's available count, so concurrent checkouts
+     * of the last copy cannot both succeed. Returns the new loan, or null if
+     * the book does not exist or no copy is available.
+     */
+    public BorrowRecord checkoutBook(User user, String isbn) {
+        long start = CHECKOUT_BOOK.start();
+        try {
+            awaitCatalog();
+            // Patrons with holds come first; they are served by handOff as copies come back
+            if (reservations.hasWaiting(isbn)) {
+                return null;
+            }
+            Book book = takeCopy(isbn);
+            return book == null ? null : lend(book, user.getUsername());
+        } finally {
+            CHECKOUT_BOOK.stop(start);
+        }
+    }
+
+    /**
+     * Closes a loan and puts its copy back; false if the loan is unknown or
+     * already returned, or if the return could not be written to disk.
+     */
+    public boolean returnBook(long loanId) {
+        long start = RETURN_BOOK.start();
+        try {
+            awaitCatalog();
+            // Removing the loan first makes a return take effect exactly once
+            BorrowRecord loan = activeLoans.remove(loanId);
+            if (loan == null) {
+                return false;
+            }
+            putBackCopy(loan.getIsbn());
+            boolean durable = awaitDurable(FileHandler.appendBorrowRecord(loan.returned(System.currentTimeMillis()))
+                    .thenApply(v -> true));
+            handOff(loan.getIsbn());
+            return durable;
+        } finally {
+            RETURN_BOOK.stop(start);
+        }
+    }
+
+    // Takes a copy with the read lock held, so an update cannot swap the book out mid-CAS
+    private Book takeCopy(String isbn) {
+        return readCatalog(() -> {
+            Book found = books.get(isbn);
+            int before = found == null ? 0 : found.checkoutCopy();
+            if (before == 1) {
+                facets.availabilityChanged(found, false);
+            }
+            return before > 0 ? found : null;
+        });
+    }
+
+    // Puts a copy back into the book catalogued now, which an update may have swapped in since the checkout
+    private boolean putBackCopy(String isbn) {
+        return readCatalog(() -> {
+            Book found = books.get(isbn);
+            int before = found == null ? -1 : found.checkinCopy();
+            if (before == 0) {
+                facets.availabilityChanged(found, true);
+            }
+            return before >= 0;
+        });
+    }
+
+    private BorrowRecord lend(Book book, String username) {
+        long now = System.currentTimeMillis();
+        BorrowRecord loan = new BorrowRecord(lastLoanId.incrementAndGet(), username, book.getIsbn(),
+                now, now + LOAN_PERIOD_MILLIS);
+        activeLoans.add(loan);
+        awaitDurable(FileHandler.appendBorrowRecord(loan).thenApply(v -> true));
+        return loan;
+    }
+
+    /**
+     * Lends available copies to the patrons at the head of the book's hold
+     * queue. Runs after every return and every new hold: whichever of the two
+     * happens last sees both the copy and the waiting patron, so a copy never
+     * sits on the shelf while someone is queued for it. No lock is taken; if
+     * another thread hands off or cancels the head hold first, the copy is
+     * put back and the next hold is tried.
+     */
+    private void handOff(String isbn) {
+        for (;;) {
+            Reservation next = reservations.peek(isbn);
+            if (next == null) {
+                return;
+            }
+            Book book = takeCopy(isbn);
+            if (book == null) {
+                return;
+            }
+            if (!reservations.remove(next)) {
+                putBackCopy(isbn);
+                continue;
+            }
+            FileHandler.appendReservation(next, false);
+            lend(book, next.getUsername());
+        }
+    }
+
+    /**
+     * Puts the user in the book's hold queue. If a copy is free the hold is
+     * fulfilled at once. Returns null if the book does not exist or the user
+     * already has a hold on it.
+     */
+    public Reservation reserveBook(User user, String isbn) {
+        long start = RESERVE_BOOK.start();
+        try {
+            if (findBookByIsbn(isbn) == null) {
+                return null;
+            }
+            Reservation reservation = reservations.place(user.getUsername(), isbn, System.currentTimeMillis());
+            if (reservation == null) {
+                return null;
+            }
+            awaitDurable(FileHandler.appendReservation(reservation, true).thenApply(v -> true));
+            handOff(isbn);
+            return reservation;
+        } finally {
+            RESERVE_BOOK.stop(start);
+        }
+    }
+
+    public boolean cancelReservation(User user, String isbn) {
+        long start = CANCEL_RESERVATION.start();
+        try {
+            awaitCatalog();
+            Reservation cancelled = reservations.cancel(user.getUsername(), isbn);
+            if (cancelled == null) {
+                return false;
+            }
+            return awaitDurable(FileHandler.appendReservation(cancelled, false).thenApply(v -> true));
+        } finally {
+            CANCEL_RESERVATION.stop(start);
+        }
+    }
+
+    /** The user's 1-based place in the book's hold queue, or 0 if they are not waiting. */
+    public int getReservationPosition(User user, String isbn) {
+        long start = GET_RESERVATION_POSITION.start();
+        try {
+            awaitCatalog();
+            return reservations.position(user.getUsername(), isbn);
+        } finally {
+            GET_RESERVATION_POSITION.stop(start);
+        }
+    }
+
+    /** Holds on the book, first in line first. */
+    public List<Reservation> getReservations(String isbn) {
+        long start = GET_RESERVATIONS.start();
+        try {
+            awaitCatalog();
+            return reservations.forIsbn(isbn);
+        } finally {
+            GET_RESERVATIONS.stop(start);
+        }
+    }
+
+    /** Returns the user's oldest open loan of the book; false if they have none. */
+    public boolean returnBook(User user, String isbn) {
+        awaitCatalog();
+        String key = Isbn.normalize(isbn);
+        BorrowRecord oldest = null;
+        for (BorrowRecord loan : activeLoans.forUser(user.getUsername())) {
+            if (Isbn.normalize(loan.getIsbn()).equals(key) && (oldest == null || loan.getId() < oldest.getId())) {
+                oldest = loan;
+            }
+        }
+        return oldest != null && returnBook(oldest.getId());
+    }
+
+    /** The user's open loans, soonest due first. O(k) in the number of loans. */
+    public List<BorrowRecord> getActiveLoans(User user) {
+        long start = GET_ACTIVE_LOANS.start();
+        try {
+            awaitCatalog();
+            return activeLoans.forUser(user.getUsername());
+        } finally {
+            GET_ACTIVE_LOANS.stop(start);
+        }
+    }
+
+    /** Who has copies of this book: its open loans, soonest due first. */
+    public List<BorrowRecord> getLoansForBook(String isbn) {
+        long start = GET_LOANS_FOR_BOOK.start();
+        try {
+            awaitCatalog();
+            return activeLoans.forIsbn(isbn);
+        } finally {
+            GET_LOANS_FOR_BOOK.stop(start);
+        }
+    }
+
+    /** Open loans past their due date, most overdue first. O(log n + k). */
+    public List<BorrowRecord> getOverdueLoans() {
+        long start = GET_OVERDUE_LOANS.start();
+        try {
+            awaitCatalog();
+            return activeLoans.dueBetween(Long.MIN_VALUE, System.currentTimeMillis() - 1);
+        } finally {
+            GET_OVERDUE_LOANS.stop(start);
+        }
+    }
+
+    /**
+     * Registers for batches of newly overdue loans. The first listener starts
+     * the background sweep; loans already overdue are reported to each
+     * listener on the first sweep after it registers.
+     */
+    public void addOverdueListener(OverdueListener listener) {
+        // The sweep must not start before all loans are indexed, or it would skip some
+        awaitCatalog();
+        overdueScheduler.addListener(listener);
+    }
+
+    public void removeOverdueListener(OverdueListener listener) {
+        overdueScheduler.removeListener(listener);
+    }
+}
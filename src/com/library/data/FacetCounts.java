@@ -0,0 +1,72 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.Map;
+
+/**
+ * Book counts by genre, publisher and publication decade, each split into
+ * available books (at least one copy on the shelf) and checked-out books
+ * (every copy on loan). Taken from counters that {@link DataStorage} keeps up
+ * to date as books are added, changed, removed, lent and returned, so a
+ * snapshot costs the number of distinct values rather than a pass over the
+ * catalog. The counters are read one by one while circulation carries on,
+ * so totals may be off by the checkouts that happened during the read.
+ */
+public final class FacetCounts {
+    /** The genre or publisher value of books that have none. */
+    public static final String NONE = "";
+
+    /** Books in one facet value, and how many of them can be borrowed now. */
+    public static final class Count {
+        private final int books;
+        private final int available;
+
+        Count(int books, int available) {
+            this.books = books;
+            this.available = available;
+        }
+
+        public int getBooks() { return books; }
+        public int getAvailable() { return available; }
+        public int getCheckedOut() { return books - available; }
+    }
+
+    private final Count total;
+    private final Map<String, Count> genres;
+    private final Map<String, Count> publishers;
+    private final Map<Integer, Count> decades;
+
+    FacetCounts(Count total, Map<String, Count> genres, Map<String, Count> publishers, Map<Integer, Count> decades) {
+        this.total = total;
+        this.genres = genres;
+        this.publishers = publishers;
+        this.decades = decades;
+    }
+
+    public Count getTotal() { return total; }
+    /** By genre, sorted by value; books without a genre are under {@link #NONE}. */
+    public Map<String, Count> getGenres() { return genres; }
+    /** By publisher, sorted by value; books without a publisher are under {@link #NONE}. */
+    public Map<String, Count> getPublishers() { return publishers; }
+    /** By first year of the decade (1990 for 1990-1999), in ascending order. */
+    public Map<Integer, Count> getDecades() { return decades; }
+
+    /** The genre facet value a book is counted under. */
+    public static String genreOf(Book book) {
+        return valueOf(book.getGenre());
+    }
+
+    /** The publisher facet value a book is counted under. */
+    public static String publisherOf(Book book) {
+        return valueOf(book.getPublisher());
+    }
+
+    /** The decade facet value a book is counted under. */
+    public static int decadeOf(Book book) {
+        return Math.floorDiv(book.getPublicationYear(), 10) * 10;
+    }
+
+    private static String valueOf(String value) {
+        return value == null ? NONE : value;
+    }
+}
@@ -0,0 +1,46 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * One catalog feed format, split in two so the importer can parallelize it:
+ * {@link #next} only frames the next raw record and runs on the single
+ * reader thread, while {@link #parse} does the decoding and mapping and is
+ * called concurrently from the parser pool.
+ *
+ * @param <R> a framed but undecoded record
+ */
+abstract class FeedReader<R> implements Closeable {
+    /** The next raw record, or null at end of feed. */
+    abstract R next() throws IOException;
+
+    /**
+     * Maps a raw record to a book. Must be thread-safe.
+     *
+     * @throws IllegalArgumentException with a human-readable reason if the record is rejected
+     */
+    abstract Book parse(R record);
+
+    /** Trims a field and turns blanks into the empty string used for missing values. */
+    static String clean(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    static Book toBook(String isbn, String title, String author, String genre, String publisher,
+                       int year, int copies, String description) {
+        isbn = clean(isbn);
+        title = clean(title);
+        if (isbn.isEmpty()) {
+            throw new IllegalArgumentException("missing ISBN");
+        }
+        if (title.isEmpty()) {
+            throw new IllegalArgumentException("missing title for ISBN " + isbn);
+        }
+        if (copies < 0) {
+            throw new IllegalArgumentException("negative copy count for ISBN " + isbn);
+        }
+        return new Book(isbn, title, clean(author), clean(genre), clean(publisher), year, copies, clean(description));
+    }
+}
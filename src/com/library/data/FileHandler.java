@@ -1,13 +1,80 @@
 package com.library.data;
 
+import com.library.models.Book;
+import com.library.models.BorrowRecord;
+import com.library.models.Reservation;
+import com.library.models.User;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 public class FileHandler {
     private static final String USERS_FILE = "data/users.dat";
+    // Legacy single-file catalog; replaced by the partition files at the first checkpoint
     private static final String BOOKS_FILE = "data/books.dat";
+    // Partition files sit next to the other data files so backups restore them in place
+    private static final String BOOK_PARTITION_FILE = "data/books-%02d.dat";
+    // Written once every partition file exists; from then on the partitions are the catalog
+    private static final String BOOK_PARTITIONS_MANIFEST = "data/books.partitions";
     private static final String BORROW_RECORDS_FILE = "data/borrow_records.dat";
+    private static final String RESERVATIONS_FILE = "data/reservations.dat";
+    private static final String JOURNAL_FILE = "data/journal.log";
+    private static final String ROTATED_JOURNAL_FILE = "data/journal.old";
+    // Partitions that were missing or unreadable at startup. They are never rewritten, since the
+    // catalog holds only part of their books, so the file stays as it is until restored by hand
+    private static final AtomicLong quarantinedPartitions = new AtomicLong();
+
+    // Latency and bytes moved per file operation, published over JMX (see Metrics)
+    private static final OperationMetrics SAVE_USERS = Metrics.operation("FileHandler.saveUsers");
+    private static final OperationMetrics LOAD_USERS = Metrics.operation("FileHandler.loadUsers");
+    private static final OperationMetrics SAVE_BOOKS = Metrics.operation("FileHandler.saveBookPartition");
+    private static final OperationMetrics LOAD_BOOKS = Metrics.operation("FileHandler.loadBooks");
+    private static final OperationMetrics LOAD_JOURNAL = Metrics.operation("FileHandler.loadJournal");
+    private static final OperationMetrics ROTATE_JOURNAL = Metrics.operation("FileHandler.rotateJournal");
+    private static final OperationMetrics LOAD_BORROW_RECORDS = Metrics.operation("FileHandler.loadBorrowRecords");
+    private static final OperationMetrics LOAD_RESERVATIONS = Metrics.operation("FileHandler.loadReservations");
+    private static final OperationMetrics COMPACT_RESERVATIONS = Metrics.operation("FileHandler.compactReservations");
+    private static final OperationMetrics CREATE_BACKUP = Metrics.operation("FileHandler.createBackup");
+
+    // Journal appends are group-committed: records arriving within the window share one fsync
+    private static final long JOURNAL_COMMIT_WINDOW_MILLIS = Long.getLong("library.journal.commitWindowMillis", 2);
+    private static final int JOURNAL_MAX_BATCH = Integer.getInteger("library.journal.maxBatch", 512);
+
+    // Backups run on a background thread, at most once per interval, however often they are requested
+    private static final long BACKUP_MIN_INTERVAL_MILLIS = 60_000;
+    private static final BackupStore.Retention BACKUP_RETENTION = new BackupStore.Retention(10, 7, 8);
+    private static final BackupStore backupStore = new BackupStore(new File("backup"));
+    private static final AtomicBoolean backupPending = new AtomicBoolean();
+    // Held by a checkpoint while it rotates the journal and rewrites the data files, and by a
+    // backup while it reads them, so a snapshot never mixes files from two checkpoints
+    static final Lock checkpointLock = new ReentrantLock();
+    private static volatile long lastBackupMillis;
+    private static final ScheduledExecutorService backupScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "backup");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // Create data directory if it doesn't exist
     static {
@@ -17,75 +84,597 @@ public class FileHandler {
         }
     }
 
+    private static final GroupCommitWriter journalWriter =
+            new GroupCommitWriter(new File(JOURNAL_FILE), JOURNAL_COMMIT_WINDOW_MILLIS, JOURNAL_MAX_BATCH);
+    // Bytes journaled since the last rotation, counting what was replayed at startup
+    private static final AtomicLong journalBytes = new AtomicLong();
+
+    // The borrow log is append-only and never rotated: it is the circulation history
+    private static final GroupCommitWriter borrowWriter =
+            new GroupCommitWriter(new File(BORROW_RECORDS_FILE), JOURNAL_COMMIT_WINDOW_MILLIS, JOURNAL_MAX_BATCH);
+
+    // Hold placements and removals; rewritten with only the waiting holds at each checkpoint
+    private static final GroupCommitWriter reservationWriter =
+            new GroupCommitWriter(new File(RESERVATIONS_FILE), JOURNAL_COMMIT_WINDOW_MILLIS, JOURNAL_MAX_BATCH);
+
+    static {
+        // Let queued journal, borrow and hold records reach the disk when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            journalWriter.close();
+            borrowWriter.close();
+            reservationWriter.close();
+        }, "journal-shutdown"));
+    }
+
     // User file operations
-    public static void saveUsers(List<Object> users) {
-        saveToFile(users, USERS_FILE);
+    public static boolean saveUsers(List<User> users) {
+        return saveToFile(out -> BinaryCodec.writeUsers(out, users), USERS_FILE, SAVE_USERS);
     }
 
-    @SuppressWarnings("unchecked")
-    public static List<Object> loadUsers() {
-        List<Object> users = (List<Object>) loadFromFile(USERS_FILE);
-        return users != null ? users : new ArrayList<>();
+    public static List<User> loadUsers() {
+        return loadFromFile(USERS_FILE, BinaryCodec::readUsers, User.class, LOAD_USERS);
     }
 
     // Book file operations
-    public static void saveBooks(List<Object> books) {
-        saveToFile(books, BOOKS_FILE);
+    /** Every book in catalog order. */
+    public static List<Book> loadBooks() {
+        List<Book> books = new ArrayList<>();
+        for (BookPartitions.Entry entry : loadBookEntries()) {
+            books.add(entry.book);
+        }
+        return books;
+    }
+
+    /** True once the catalog is stored as partition files rather than the legacy books file. */
+    static boolean hasBookPartitions() {
+        return new File(BOOK_PARTITIONS_MANIFEST).exists();
+    }
+
+    /**
+     * Loads the catalog with sequence numbers, in catalog order. Partition
+     * files are memory-mapped and decoded in parallel on the common
+     * fork-join pool, then merged by sequence number. A legacy books file
+     * is numbered in file order.
+     */
+    static List<BookPartitions.Entry> loadBookEntries() {
+        if (!hasBookPartitions()) {
+            List<BookPartitions.Entry> entries = new ArrayList<>();
+            long sequence = 0;
+            for (Book book : loadFromFile(BOOKS_FILE, BinaryCodec::readBooks, Book.class, LOAD_BOOKS)) {
+                entries.add(new BookPartitions.Entry(++sequence, book));
+            }
+            return entries;
+        }
+
+        long start = LOAD_BOOKS.start();
+        List<List<BookPartitions.Entry>> partitions = IntStream.range(0, BookPartitions.COUNT).parallel()
+                .mapToObj(FileHandler::loadBookPartition)
+                .collect(Collectors.toList());
+        long bytes = 0;
+        for (int i = 0; i < BookPartitions.COUNT; i++) {
+            bytes += bookPartitionFile(i).length();
+        }
+        List<BookPartitions.Entry> merged = BookPartitions.merge(partitions);
+        LOAD_BOOKS.stop(start, bytes);
+        return merged;
     }
 
-    @SuppressWarnings("unchecked")
-    public static List<Object> loadBooks() {
-        List<Object> books = (List<Object>) loadFromFile(BOOKS_FILE);
-        return books != null ? books : new ArrayList<>();
+    private static List<BookPartitions.Entry> loadBookPartition(int partition) {
+        File file = bookPartitionFile(partition);
+        if (!file.exists()) {
+            quarantine(partition, "it is missing");
+            return new ArrayList<>();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping outlives the channel until the buffer is collected, which is soon:
+            // nothing keeps it once the partition is decoded
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            InputStream in = new ByteBufferInputStream(mapped);
+            if (!BinaryCodec.skipMagic(in)) {
+                throw new IOException("not a catalog partition");
+            }
+            return BinaryCodec.readBookPartition(in);
+        } catch (IOException | RuntimeException e) {
+            quarantine(partition, "it could not be read (" + e + ")");
+            return new ArrayList<>();
+        }
+    }
+
+    private static void quarantine(int partition, String reason) {
+        quarantinedPartitions.accumulateAndGet(BookPartitions.bit(partition), (a, b) -> a | b);
+        System.err.println("Catalog partition " + bookPartitionFile(partition) + " was not loaded: " + reason
+                + ". Its books are missing and it will not be saved until it is restored from a backup"
+                + " and the application restarted; the journal is kept until then.");
+    }
+
+    /**
+     * Rewrites the partitions whose entry in {@code contents} (indexed by
+     * partition) is not null and returns the bit mask of those that could
+     * not be written. Quarantined partitions are never written and always
+     * count as failed. The first complete write also records the manifest
+     * and retires the legacy books file.
+     */
+    static long saveBookPartitions(List<List<BookPartitions.Entry>> contents) {
+        long failed = 0;
+        boolean complete = true;
+        for (int i = 0; i < BookPartitions.COUNT; i++) {
+            List<BookPartitions.Entry> entries = contents.get(i);
+            if (entries == null) {
+                complete = false;
+            } else if ((quarantinedPartitions.get() & BookPartitions.bit(i)) != 0) {
+                failed |= BookPartitions.bit(i);
+            } else if (!saveToFile(out -> BinaryCodec.writeBookPartition(out, entries),
+                    bookPartitionFile(i).getPath(), SAVE_BOOKS)) {
+                failed |= BookPartitions.bit(i);
+            }
+        }
+        if (failed == 0 && complete && !hasBookPartitions()) {
+            if (saveToFile(out -> out.write(BookPartitions.COUNT), BOOK_PARTITIONS_MANIFEST, SAVE_BOOKS)) {
+                new File(BOOKS_FILE).delete();
+            }
+        }
+        return failed;
+    }
+
+    private static File bookPartitionFile(int partition) {
+        return new File(String.format(BOOK_PARTITION_FILE, partition));
+    }
+
+    /** Read-only stream over a buffer, with the mark/reset support {@link BinaryCodec#skipMagic} needs. */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+    }
+
+    // Journal operations
+    // Each record is framed as [length][payload][crc32] so a torn write at the
+    // tail of the file is detected on replay and cut off before new records follow it.
+    /** Queues a journal record; the future completes once it is durable on disk. */
+    public static CompletableFuture<Void> appendJournal(JournalEntry entry) {
+        byte[] record;
+        try {
+            record = frame(entry::writeTo);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        journalBytes.addAndGet(record.length);
+        return journalWriter.append(record);
+    }
+
+    /** Bytes in the journal since the last checkpoint began; what a restart would replay. */
+    public static long journalBytes() {
+        return journalBytes.get();
+    }
+
+    public static CommitMetrics getJournalMetrics() {
+        return journalWriter.metrics();
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * The journal records since the last checkpoint, oldest first, checked
+     * but still encoded: decoding a large journal is left to the caller, which
+     * can do it off the startup path (see {@link JournalEntry#decode}).
+     */
+    public static List<byte[]> loadJournal() {
+        long start = LOAD_JOURNAL.start();
+        List<byte[]> records = new ArrayList<>();
+        long bytes = readJournal(ROTATED_JOURNAL_FILE, records);
+        bytes += readJournal(JOURNAL_FILE, records);
+        journalBytes.set(bytes);
+        LOAD_JOURNAL.stop(start, bytes);
+        return records;
+    }
+
+    /**
+     * Moves the active journal aside so a checkpoint can be written while new
+     * mutations keep appending to a fresh file. The rotated segment is only
+     * deleted by {@link #discardRotatedJournal()} once the snapshot is on disk.
+     */
+    public static void rotateJournal() {
+        long start = ROTATE_JOURNAL.start();
+        journalWriter.withFileClosed(() -> {
+            File active = new File(JOURNAL_FILE);
+            File rotated = new File(ROTATED_JOURNAL_FILE);
+            if (!active.exists()) {
+                return;
+            }
+            if (rotated.exists()) {
+                // A previous checkpoint did not finish; keep both segments. The active one is
+                // only deleted once its records are synced in the rotated one
+                try {
+                    appendFile(active, rotated);
+                } catch (IOException e) {
+                    System.err.println("Error rotating " + JOURNAL_FILE + ": " + e.getMessage());
+                    return;
+                }
+                active.delete();
+            } else if (!active.renameTo(rotated)) {
+                System.err.println("Error rotating " + JOURNAL_FILE);
+                return;
+            }
+            journalBytes.set(0);
+        });
+        ROTATE_JOURNAL.stop(start);
+    }
+
+    public static void discardRotatedJournal() {
+        new File(ROTATED_JOURNAL_FILE).delete();
+    }
+
+    // A rotated segment gets the active one appended to it, so both must end on a whole record
+    private static long readJournal(String filename, List<byte[]> records) {
+        long valid = readFramed(filename, FileHandler::readPayload, records);
+        truncateTornTail(journalWriter, filename, valid);
+        return valid;
+    }
+
+    // Borrow log operations (same framing as the journal)
+    /** Appends a loan or return to the borrow log; the future completes once it is durable. */
+    public static CompletableFuture<Void> appendBorrowRecord(BorrowRecord record) {
+        return appendFramed(borrowWriter, out -> {
+            out.writeLong(record.getId());
+            out.writeUTF(record.getUsername());
+            out.writeUTF(record.getIsbn());
+            out.writeLong(record.getBorrowedAt());
+            out.writeLong(record.getDueAt());
+            out.writeLong(record.getReturnedAt());
+        });
+    }
+
+    /** Every record in the borrow log, oldest first; a return follows the loan it closes. */
+    public static List<BorrowRecord> loadBorrowRecords() {
+        long start = LOAD_BORROW_RECORDS.start();
+        List<BorrowRecord> records = new ArrayList<>();
+        long valid = readFramed(BORROW_RECORDS_FILE, in -> new BorrowRecord(in.readLong(), in.readUTF(), in.readUTF(),
+                in.readLong(), in.readLong(), in.readLong()), records);
+        truncateTornTail(borrowWriter, BORROW_RECORDS_FILE, valid);
+        LOAD_BORROW_RECORDS.stop(start, valid);
+        return records;
+    }
+
+    // Reservation log operations (same framing as the journal)
+    /** Records that a hold was placed ({@code waiting}) or left the queue (fulfilled or cancelled). */
+    public static CompletableFuture<Void> appendReservation(Reservation reservation, boolean waiting) {
+        return appendFramed(reservationWriter, out -> writeReservation(out, reservation, waiting));
+    }
+
+    /** The holds still waiting, oldest first. */
+    public static List<Reservation> loadReservations() {
+        long start = LOAD_RESERVATIONS.start();
+        List<ReservationRecord> records = new ArrayList<>();
+        long valid = readFramed(RESERVATIONS_FILE, in -> new ReservationRecord(in.readBoolean(),
+                new Reservation(in.readLong(), in.readUTF(), in.readUTF(), in.readLong())), records);
+        truncateTornTail(reservationWriter, RESERVATIONS_FILE, valid);
+
+        // Replay by id: placing and removing are idempotent, so a checkpoint overlapping the tail is harmless
+        Map<Long, Reservation> waiting = new TreeMap<>();
+        for (ReservationRecord record : records) {
+            if (record.waiting) {
+                waiting.put(record.reservation.getId(), record.reservation);
+            } else {
+                waiting.remove(record.reservation.getId());
+            }
+        }
+        LOAD_RESERVATIONS.stop(start, valid);
+        return new ArrayList<>(waiting.values());
+    }
+
+    /**
+     * Rewrites the reservation log with just the waiting holds. Runs with the
+     * log closed; a record still queued for the writer is appended afterwards,
+     * and replaying it on top of the compacted file changes nothing.
+     */
+    public static void compactReservations(Supplier<List<Reservation>> waiting) {
+        reservationWriter.withFileClosed(() -> saveToFile(out -> {
+            for (Reservation reservation : waiting.get()) {
+                out.write(frame(data -> writeReservation(data, reservation, true)));
+            }
+        }, RESERVATIONS_FILE, COMPACT_RESERVATIONS));
+    }
+
+    private static final class ReservationRecord {
+        final boolean waiting;
+        final Reservation reservation;
+
+        ReservationRecord(boolean waiting, Reservation reservation) {
+            this.waiting = waiting;
+            this.reservation = reservation;
+        }
+    }
+
+    private static void writeReservation(DataOutputStream out, Reservation reservation, boolean waiting)
+            throws IOException {
+        out.writeBoolean(waiting);
+        out.writeLong(reservation.getId());
+        out.writeUTF(reservation.getUsername());
+        out.writeUTF(reservation.getIsbn());
+        out.writeLong(reservation.getPlacedAt());
+    }
+
+    // Cuts off a torn tail so new records are not appended behind garbage
+    private static void truncateTornTail(GroupCommitWriter writer, String filename, long valid) {
+        File file = new File(filename);
+        if (file.length() <= valid) {
+            return;
+        }
+        writer.withFileClosed(() -> {
+            try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+                channel.truncate(valid);
+            } catch (IOException e) {
+                System.err.println("Error truncating " + filename + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface PayloadReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static CompletableFuture<Void> appendFramed(GroupCommitWriter writer, PayloadWriter payload) {
+        try {
+            return writer.append(frame(payload));
+        } catch (IOException e) {
+            return failed(e);
+        }
+    }
+
+    private static CompletableFuture<Void> failed(IOException e) {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    // The whole payload of a record, undecoded; readFramed hands it over as a byte array stream
+    private static byte[] readPayload(DataInputStream in) throws IOException {
+        byte[] payload = new byte[in.available()];
+        in.readFully(payload);
+        return payload;
+    }
+
+    private static byte[] frame(PayloadWriter payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(0); // length placeholder
+            payload.write(out);
+            out.writeInt(0); // checksum placeholder
+        }
+        byte[] record = buffer.toByteArray();
+        int length = record.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, length);
+        putInt(record, 0, length);
+        putInt(record, record.length - 4, (int) crc.getValue());
+        return record;
+    }
+
+    // Reads framed records until the end or the first damaged one. Returns the length of the
+    // intact prefix, or the file length if reading failed for another reason (nothing to cut off).
+    private static <T> long readFramed(String filename, PayloadReader<T> reader, List<T> records) {
+        File file = new File(filename);
+        if (!file.exists()) {
+            return 0;
+        }
+
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return valid;
+                }
+                if (length < 0 || length > file.length()) {
+                    System.err.println("Corrupt record in " + filename + ", ignoring remainder");
+                    return valid;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int checksum = in.readInt();
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    System.err.println("Checksum mismatch in " + filename + ", ignoring remainder");
+                    return valid;
+                }
+                records.add(reader.read(new DataInputStream(new ByteArrayInputStream(payload))));
+                valid += length + 8;
+            }
+        } catch (EOFException e) {
+            System.err.println("Truncated record in " + filename + ", ignoring remainder");
+        } catch (IOException e) {
+            System.err.println("Error loading from " + filename + ": " + e.getMessage());
+            return file.length();
+        }
+        return valid;
+    }
+
+    // Appends source to dest and syncs it; on failure dest is cut back to its old length
+    private static void appendFile(File source, File dest) throws IOException {
+        try (InputStream in = new FileInputStream(source);
+             FileOutputStream out = new FileOutputStream(dest, true)) {
+            long destLength = out.getChannel().size();
+            try {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, length);
+                }
+                out.getFD().sync();
+            } catch (IOException e) {
+                out.getChannel().truncate(destLength);
+                throw e;
+            }
+        }
+    }
+
+    private interface Encoder {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private interface Decoder<T> {
+        List<T> read(InputStream in) throws IOException;
     }
 
     // Generic save method
-    private static void saveToFile(List<Object> data, String filename) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(data);
+    // Writes to a temporary file first so a crash never leaves a half-written snapshot
+    private static boolean saveToFile(Encoder encoder, String filename, OperationMetrics metrics) {
+        long start = metrics.start();
+        File target = new File(filename);
+        File temp = new File(filename + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024)) {
+            encoder.write(out);
         } catch (IOException e) {
             System.err.println("Error saving to " + filename + ": " + e.getMessage());
+            metrics.stop(start);
+            return false;
+        }
+        long written = temp.length();
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            metrics.stop(start, written);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error replacing " + filename + ": " + e.getMessage());
+            metrics.stop(start);
+            return false;
         }
     }
 
     // Generic load method
-    private static Object loadFromFile(String filename) {
+    // Files still in the old Java-serialization format are read as-is and
+    // rewritten in the binary format at the next checkpoint.
+    private static <T> List<T> loadFromFile(String filename, Decoder<T> decoder, Class<T> type,
+                                            OperationMetrics metrics) {
         File file = new File(filename);
-        if (!file.exists()) {
-            return null;
+        if (!file.exists() || file.length() == 0) {
+            return new ArrayList<>();
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            return ois.readObject();
+        long start = metrics.start();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            if (BinaryCodec.skipMagic(in)) {
+                return decoder.read(in);
+            }
+            return loadLegacy(in, type);
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error loading from " + filename + ": " + e.getMessage());
-            return null;
+            return new ArrayList<>();
+        } finally {
+            metrics.stop(start, file.length());
         }
     }
 
+    private static <T> List<T> loadLegacy(InputStream in, Class<T> type) throws IOException, ClassNotFoundException {
+        List<T> records = new ArrayList<>();
+        Object data = new ObjectInputStream(in).readObject();
+        if (data instanceof List) {
+            for (Object obj : (List<?>) data) {
+                if (type.isInstance(obj)) {
+                    records.add(type.cast(obj));
+                }
+            }
+        }
+        return records;
+    }
+
     // Backup methods
+    /**
+     * Takes a deduplicated snapshot of the data files right away and thins
+     * old snapshots. Prefer {@link #scheduleBackup()} from mutation paths.
+     * The snapshot is taken between checkpoints and includes the journal,
+     * so restoring it recovers every change that was durable at the time.
+     */
     public static void createBackup() {
-        String backupDir = "backup/" + System.currentTimeMillis() + "/";
-        new File(backupDir).mkdirs();
-        
-        copyFile(USERS_FILE, backupDir + "users.dat");
-        copyFile(BOOKS_FILE, backupDir + "books.dat");
-        copyFile(BORROW_RECORDS_FILE, backupDir + "borrow_records.dat");
-    }
-
-    private static void copyFile(String sourcePath, String destPath) {
-        File sourceFile = new File(sourcePath);
-        if (!sourceFile.exists()) return;
-        
-        try (InputStream in = new FileInputStream(sourcePath);
-             OutputStream out = new FileOutputStream(destPath)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = in.read(buffer)) > 0) {
-                out.write(buffer, 0, length);
+        long start = CREATE_BACKUP.start();
+        try {
+            // Unchanged partitions cost nothing here: their chunks are already in the store
+            List<File> files = new ArrayList<>(Arrays.asList(new File(USERS_FILE), new File(BOOKS_FILE),
+                    new File(BOOK_PARTITIONS_MANIFEST), new File(BORROW_RECORDS_FILE), new File(RESERVATIONS_FILE),
+                    new File(ROTATED_JOURNAL_FILE), new File(JOURNAL_FILE)));
+            for (int i = 0; i < BookPartitions.COUNT; i++) {
+                files.add(bookPartitionFile(i));
             }
+            // Appends carry on meanwhile; a record cut off at the end is dropped on load
+            checkpointLock.lock();
+            try {
+                backupStore.createSnapshot(files);
+            } finally {
+                checkpointLock.unlock();
+            }
+            backupStore.prune(BACKUP_RETENTION, System.currentTimeMillis());
         } catch (IOException e) {
-            System.err.println("Backup failed for: " + sourcePath);
+            System.err.println("Backup failed: " + e.getMessage());
+        } finally {
+            CREATE_BACKUP.stop(start);
+        }
+    }
+
+    /** Requests a backup on the background scheduler; requests made while one is pending are merged. */
+    public static void scheduleBackup() {
+        if (!backupPending.compareAndSet(false, true)) {
+            return;
         }
+        long delay = Math.max(0, lastBackupMillis + BACKUP_MIN_INTERVAL_MILLIS - System.currentTimeMillis());
+        backupScheduler.schedule(() -> {
+            backupPending.set(false);
+            lastBackupMillis = System.currentTimeMillis();
+            createBackup();
+        }, delay, TimeUnit.MILLISECONDS);
     }
 }
\ No newline at end of file
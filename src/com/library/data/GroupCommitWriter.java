@@ -0,0 +1,192 @@
+package com.library.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends records to a file with group commit: a single writer thread
+ * gathers the records submitted within a short window (or until the batch
+ * is full), writes them together and makes them durable with one fsync.
+ * Every submitter gets a future that completes once its record is on disk,
+ * so throughput is no longer capped at one fsync per mutation.
+ */
+class GroupCommitWriter {
+    private static final class Pending {
+        final byte[] record;
+        final long submittedNanos;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Pending(byte[] record) {
+            this.record = record;
+            this.submittedNanos = System.nanoTime();
+        }
+    }
+
+    private final File file;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Object fileLock = new Object();
+    private final Thread writer;
+    // Write-and-fsync time and bytes per batch, published over JMX (see Metrics)
+    private final OperationMetrics commitTimer;
+    private volatile boolean running = true;
+    private FileChannel channel;
+
+    // Written only by the writer thread; read through metrics()
+    private volatile long commits;
+    private volatile long records;
+    private volatile int maxBatchSize;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    GroupCommitWriter(File file, long windowMillis, int maxBatch) {
+        this.file = file;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+        this.commitTimer = Metrics.operation("GroupCommitWriter." + file.getName());
+        this.writer = new Thread(this::run, file.getName() + "-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Queues a record; the future completes when it has been written and synced. */
+    public CompletableFuture<Void> append(byte[] record) {
+        Pending pending = new Pending(record);
+        if (!running) {
+            pending.durable.completeExceptionally(new IOException(file.getName() + " writer is closed"));
+            return pending.durable;
+        }
+        queue.add(pending);
+        return pending.durable;
+    }
+
+    /**
+     * Runs {@code action} with the file closed and no batch in flight, e.g.
+     * to rename it. The file is reopened (in append mode) by the next batch.
+     */
+    public void withFileClosed(Runnable action) {
+        synchronized (fileLock) {
+            closeChannel();
+            action.run();
+        }
+    }
+
+    public CommitMetrics metrics() {
+        return new CommitMetrics(commits, records, maxBatchSize, totalLatencyNanos, maxLatencyNanos);
+    }
+
+    /** Stops accepting records and waits for everything already queued to be committed. */
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (fileLock) {
+            closeChannel();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                // Only close() stops the writer; keep draining
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        int bytes = 0;
+        for (Pending pending : batch) {
+            bytes += pending.record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (Pending pending : batch) {
+            buffer.put(pending.record);
+        }
+        buffer.flip();
+
+        long start = commitTimer.start();
+        try {
+            synchronized (fileLock) {
+                if (channel == null) {
+                    channel = new FileOutputStream(file, true).getChannel();
+                }
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            commitTimer.stop(start, bytes);
+        } catch (IOException e) {
+            System.err.println("Error appending to " + file + ": " + e.getMessage());
+            closeChannelQuietly();
+            for (Pending pending : batch) {
+                pending.durable.completeExceptionally(e);
+            }
+            return;
+        }
+
+        long now = System.nanoTime();
+        long latencyTotal = 0;
+        long latencyMax = maxLatencyNanos;
+        for (Pending pending : batch) {
+            long latency = now - pending.submittedNanos;
+            latencyTotal += latency;
+            latencyMax = Math.max(latencyMax, latency);
+            pending.durable.complete(null);
+        }
+        commits++;
+        records += batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+        totalLatencyNanos += latencyTotal;
+        maxLatencyNanos = latencyMax;
+    }
+
+    private void closeChannelQuietly() {
+        synchronized (fileLock) {
+            closeChannel();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + file + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.library.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Progress or final outcome of a {@link CatalogImporter} run. */
+public final class ImportReport {
+    private final long recordsRead;
+    private final long added;
+    private final long updated;
+    private final long duplicates;
+    private final long rejected;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long elapsedNanos;
+    private final boolean finished;
+    private final List<String> rejectSamples;
+
+    ImportReport(long recordsRead, long added, long updated, long duplicates, long rejected,
+                 long bytesRead, long totalBytes, long elapsedNanos, boolean finished, List<String> rejectSamples) {
+        this.recordsRead = recordsRead;
+        this.added = added;
+        this.updated = updated;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.finished = finished;
+        this.rejectSamples = Collections.unmodifiableList(rejectSamples);
+    }
+
+    /** Records parsed so far, including rejected and duplicate ones. */
+    public long getRecordsRead() { return recordsRead; }
+    public long getAdded() { return added; }
+    /** Existing books replaced (only when the importer updates existing ISBNs). */
+    public long getUpdated() { return updated; }
+    /** Records skipped because their ISBN was already seen in the feed or catalogued. */
+    public long getDuplicates() { return duplicates; }
+    /** Records that could not be mapped to a book. */
+    public long getRejected() { return rejected; }
+    public long getBytesRead() { return bytesRead; }
+    /** Size of the feed, or -1 if unknown. */
+    public long getTotalBytes() { return totalBytes; }
+    public boolean isFinished() { return finished; }
+
+    /** Reasons for the first rejected records, prefixed with their record number. */
+    public List<String> getRejectSamples() { return rejectSamples; }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : recordsRead / getElapsedSeconds();
+    }
+
+    /** Fraction of the feed consumed, between 0 and 1; 0 if the size is unknown. */
+    public double getProgress() {
+        if (finished) {
+            return 1;
+        }
+        return totalBytes <= 0 ? 0 : Math.min(1, (double) bytesRead / totalBytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records in %.1fs (%.0f/s, %.1f MB/s): %d added, %d updated, %d duplicates, %d rejected",
+                recordsRead, getElapsedSeconds(), getRecordsPerSecond(),
+                elapsedNanos == 0 ? 0 : bytesRead / 1e6 / getElapsedSeconds(),
+                added, updated, duplicates, rejected);
+    }
+}
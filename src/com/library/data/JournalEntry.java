@@ -0,0 +1,203 @@
+package com.library.data;
+
+import com.library.models.Book;
+import com.library.models.User;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single catalog mutation as recorded in the journal. Only the changed
+ * record is written, so the cost of an entry is independent of catalog size.
+ * A {@link Type#BATCH} entry wraps the book mutations of one
+ * {@link CatalogBatch}; it is framed and checksummed as one record, so a
+ * batch is replayed entirely or not at all.
+ */
+public class JournalEntry {
+    public enum Type { ADD_BOOK, UPDATE_BOOK, REMOVE_BOOK, REGISTER_USER, BATCH }
+
+    // Strings may be null (e.g. optional publisher), so prefix a tag: null,
+    // modified UTF-8 as written by writeUTF (older journals; limited to
+    // 64 KB), or a varint length and UTF-8, which has no length limit
+    private static final int STRING_NULL = 0;
+    private static final int STRING_MODIFIED_UTF8 = 1;
+    private static final int STRING_UTF8 = 2;
+
+    private final Type type;
+    private final Book book;
+    private final User user;
+    private final String isbn;
+    private final List<JournalEntry> entries;
+
+    private JournalEntry(Type type, Book book, User user, String isbn) {
+        this(type, book, user, isbn, Collections.<JournalEntry>emptyList());
+    }
+
+    private JournalEntry(Type type, Book book, User user, String isbn, List<JournalEntry> entries) {
+        this.type = type;
+        this.book = book;
+        this.user = user;
+        this.isbn = isbn;
+        this.entries = entries;
+    }
+
+    public static JournalEntry addBook(Book book) {
+        return new JournalEntry(Type.ADD_BOOK, book, null, book.getIsbn());
+    }
+
+    public static JournalEntry updateBook(Book book) {
+        return new JournalEntry(Type.UPDATE_BOOK, book, null, book.getIsbn());
+    }
+
+    public static JournalEntry removeBook(String isbn) {
+        return new JournalEntry(Type.REMOVE_BOOK, null, null, isbn);
+    }
+
+    public static JournalEntry registerUser(User user) {
+        return new JournalEntry(Type.REGISTER_USER, null, user, null);
+    }
+
+    /** Groups book mutations that must be replayed together. */
+    public static JournalEntry batch(List<JournalEntry> entries) {
+        return new JournalEntry(Type.BATCH, null, null, null,
+                Collections.unmodifiableList(new ArrayList<>(entries)));
+    }
+
+    public Type getType() { return type; }
+    public Book getBook() { return book; }
+    public User getUser() { return user; }
+    public String getIsbn() { return isbn; }
+    public List<JournalEntry> getEntries() { return entries; }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case ADD_BOOK:
+            case UPDATE_BOOK:
+                writeBook(out, book);
+                break;
+            case REMOVE_BOOK:
+                writeString(out, isbn);
+                break;
+            case REGISTER_USER:
+                writeUser(out, user);
+                break;
+            case BATCH:
+                out.writeInt(entries.size());
+                for (JournalEntry entry : entries) {
+                    entry.writeTo(out);
+                }
+                break;
+        }
+    }
+
+    /** The type of an encoded entry without decoding it, or null if the type is unknown. */
+    static Type typeOf(byte[] payload) {
+        int ordinal = payload.length > 0 ? payload[0] & 0xFF : -1;
+        return ordinal >= 0 && ordinal < Type.values().length ? Type.values()[ordinal] : null;
+    }
+
+    /** Decodes an entry as loaded by {@link FileHandler#loadJournal()}. */
+    static JournalEntry decode(byte[] payload) throws IOException {
+        return readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+    }
+
+    static JournalEntry readFrom(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= Type.values().length) {
+            throw new IOException("Unknown journal entry type: " + ordinal);
+        }
+        switch (Type.values()[ordinal]) {
+            case ADD_BOOK:
+                return addBook(readBook(in));
+            case UPDATE_BOOK:
+                return updateBook(readBook(in));
+            case REMOVE_BOOK:
+                return removeBook(readString(in));
+            case REGISTER_USER:
+                return registerUser(readUser(in));
+            default:
+                int count = in.readInt();
+                if (count < 0) {
+                    throw new IOException("Invalid batch size: " + count);
+                }
+                List<JournalEntry> entries = new ArrayList<>(Math.min(count, 1024));
+                for (int i = 0; i < count; i++) {
+                    entries.add(readFrom(in));
+                }
+                return batch(entries);
+        }
+    }
+
+    private static void writeBook(DataOutputStream out, Book book) throws IOException {
+        writeString(out, book.getIsbn());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        writeString(out, book.getGenre());
+        writeString(out, book.getPublisher());
+        out.writeInt(book.getPublicationYear());
+        out.writeInt(book.getTotalCopies());
+        out.writeInt(book.getAvailableCopies());
+        writeString(out, book.getDescription());
+    }
+
+    private static Book readBook(DataInputStream in) throws IOException {
+        String isbn = readString(in);
+        String title = readString(in);
+        String author = readString(in);
+        String genre = readString(in);
+        String publisher = readString(in);
+        int year = in.readInt();
+        int totalCopies = in.readInt();
+        int availableCopies = in.readInt();
+        String description = readString(in);
+
+        Book book = new Book(isbn, title, author, genre, publisher, year, totalCopies, description);
+        book.setAvailableCopies(availableCopies);
+        return book;
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        writeString(out, user.getUsername());
+        writeString(out, user.getPassword());
+        writeString(out, user.getRole());
+        writeString(out, user.getFullName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getPhoneNumber());
+    }
+
+    private static User readUser(DataInputStream in) throws IOException {
+        return new User(readString(in), readString(in), readString(in),
+                        readString(in), readString(in), readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeByte(STRING_NULL);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(STRING_UTF8);
+        BinaryCodec.writeVarint(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case STRING_NULL:
+                return null;
+            case STRING_MODIFIED_UTF8:
+                return in.readUTF();
+            case STRING_UTF8:
+                return new String(BinaryCodec.readBytes(in, BinaryCodec.readVarint(in)), StandardCharsets.UTF_8);
+            default:
+                throw new IOException("Unknown string tag: " + tag);
+        }
+    }
+}
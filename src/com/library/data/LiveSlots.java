@@ -0,0 +1,85 @@
+package com.library.data;
+
+import java.util.BitSet;
+
+/**
+ * Which slots of a tombstoned slot array hold a live book, with a Fenwick
+ * tree over them so a slot's catalog position (its rank among live slots)
+ * is found in O(log n). Shared by the catalog stores, which keep books in
+ * insertion order and only compact once tombstones pile up.
+ */
+final class LiveSlots {
+    private final BitSet live = new BitSet();
+    // 1-based Fenwick tree counting live slots
+    private int[] tree = new int[17];
+    private int count;
+
+    int count() {
+        return count;
+    }
+
+    boolean isLive(int slot) {
+        return live.get(slot);
+    }
+
+    /** The first live slot at or after {@code from}, or -1 if there is none. */
+    int next(int from) {
+        return live.nextSetBit(from);
+    }
+
+    void add(int slot) {
+        live.set(slot);
+        count++;
+        update(slot, 1);
+    }
+
+    void remove(int slot) {
+        live.clear(slot);
+        count--;
+        update(slot, -1);
+    }
+
+    /** Number of live slots before {@code slot}. O(log n). */
+    int position(int slot) {
+        int position = 0;
+        for (int i = Math.min(slot, tree.length - 1); i > 0; i -= i & -i) {
+            position += tree[i];
+        }
+        return position;
+    }
+
+    /** After a compaction: slots {@code [0, liveCount)} are live and the rest are gone. */
+    void compacted(int liveCount) {
+        live.clear();
+        live.set(0, liveCount);
+        count = liveCount;
+        rebuild(tree.length - 1);
+    }
+
+    // Called after the bit itself has been updated
+    private void update(int slot, int delta) {
+        if (slot + 1 >= tree.length) {
+            // Growing rebuilds from the bits, which already include this change
+            rebuild(Math.max(slot + 1, (tree.length - 1) * 2));
+            return;
+        }
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Rebuilds the tree from the bits in O(capacity)
+    private void rebuild(int capacity) {
+        int[] rebuilt = new int[capacity + 1];
+        for (int slot = live.nextSetBit(0); slot >= 0 && slot < capacity; slot = live.nextSetBit(slot + 1)) {
+            rebuilt[slot + 1] = 1;
+        }
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+        tree = rebuilt;
+    }
+}
@@ -0,0 +1,126 @@
+package com.library.data;
+
+import com.library.models.BorrowRecord;
+import com.library.models.Isbn;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Open loans, indexed for the circulation queries. A skip list ordered by
+ * due date (then loan id) answers "what is overdue" in O(log n + k); loans
+ * are also indexed by id, by borrower and by normalized ISBN, so "my
+ * loans" and "who has this book" cost O(k). All structures are concurrent:
+ * checkouts and returns of different loans never block each other.
+ */
+class LoanIndex {
+    private static final Comparator<BorrowRecord> BY_DUE_DATE =
+            Comparator.comparingLong(BorrowRecord::getDueAt).thenComparingLong(BorrowRecord::getId);
+
+    private final Map<Long, BorrowRecord> byId = new ConcurrentHashMap<>();
+    private final NavigableSet<BorrowRecord> byDueDate = new ConcurrentSkipListSet<>(BY_DUE_DATE);
+    private final Map<String, Set<Long>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> byIsbn = new ConcurrentHashMap<>();
+
+    public int size() {
+        return byId.size();
+    }
+
+    public BorrowRecord get(long loanId) {
+        return byId.get(loanId);
+    }
+
+    public void add(BorrowRecord loan) {
+        byId.put(loan.getId(), loan);
+        byDueDate.add(loan);
+        link(byUser, userKey(loan.getUsername()), loan.getId());
+        link(byIsbn, Isbn.normalize(loan.getIsbn()), loan.getId());
+    }
+
+    /** Removes the loan and returns it; only one of several concurrent callers gets it. */
+    public BorrowRecord remove(long loanId) {
+        BorrowRecord loan = byId.remove(loanId);
+        if (loan != null) {
+            byDueDate.remove(loan);
+            unlink(byUser, userKey(loan.getUsername()), loanId);
+            unlink(byIsbn, Isbn.normalize(loan.getIsbn()), loanId);
+        }
+        return loan;
+    }
+
+    /** The user's open loans, soonest due first. */
+    public List<BorrowRecord> forUser(String username) {
+        return resolve(byUser.get(userKey(username)));
+    }
+
+    /** Open loans of the book, soonest due first. */
+    public List<BorrowRecord> forIsbn(String isbn) {
+        return resolve(byIsbn.get(Isbn.normalize(isbn)));
+    }
+
+    public int countForIsbn(String isbn) {
+        Set<Long> ids = byIsbn.get(Isbn.normalize(isbn));
+        return ids == null ? 0 : ids.size();
+    }
+
+    /** Open loans due in {@code (after, upTo]}, in due-date order. */
+    public List<BorrowRecord> dueBetween(long after, long upTo) {
+        if (upTo <= after) {
+            return Collections.emptyList();
+        }
+        // Probes sort after every real loan with the same due time
+        BorrowRecord from = probe(after);
+        BorrowRecord to = probe(upTo);
+        return new ArrayList<>(byDueDate.subSet(from, false, to, true));
+    }
+
+    public Iterable<BorrowRecord> all() {
+        return byId.values();
+    }
+
+    private List<BorrowRecord> resolve(Set<Long> ids) {
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<BorrowRecord> loans = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            BorrowRecord loan = byId.get(id);
+            if (loan != null) {
+                loans.add(loan);
+            }
+        }
+        loans.sort(BY_DUE_DATE);
+        return loans;
+    }
+
+    private static BorrowRecord probe(long dueAt) {
+        return new BorrowRecord(Long.MAX_VALUE, "", "", 0, dueAt);
+    }
+
+    private static void link(Map<String, Set<Long>> index, String key, long loanId) {
+        index.compute(key, (k, ids) -> {
+            Set<Long> set = ids != null ? ids : ConcurrentHashMap.<Long>newKeySet();
+            set.add(loanId);
+            return set;
+        });
+    }
+
+    // Drops the key once its last loan is gone so the index does not grow with history
+    private static void unlink(Map<String, Set<Long>> index, String key, long loanId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(loanId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static String userKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,200 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MARC21 transmission format (ISO 2709) feed. Framing only reads the
+ * five-digit record length from the leader, so splitting the feed is cheap;
+ * the directory and fields are decoded by {@link #parse}.
+ *
+ * <p>Mapping: 020$a ISBN, 245$a title, 100$a (or 110$a) author, 650$a genre,
+ * 264/260 $b publisher and $c year, 520$a description. Records flagged as
+ * Unicode in leader position 9 are decoded as UTF-8; MARC-8 records are
+ * read as Latin-1, which is exact for ASCII and close enough for search.
+ */
+class MarcFeedReader extends FeedReader<byte[]> {
+    private static final int LEADER_LENGTH = 24;
+    private static final int DIRECTORY_ENTRY = 12;
+    private static final byte FIELD_TERMINATOR = 0x1E;
+    private static final byte RECORD_TERMINATOR = 0x1D;
+    private static final byte SUBFIELD_DELIMITER = 0x1F;
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+
+    private final InputStream in;
+
+    MarcFeedReader(InputStream stream) {
+        in = new BufferedInputStream(stream, 1 << 16);
+    }
+
+    @Override
+    byte[] next() throws IOException {
+        byte[] prefix = new byte[5];
+        int first = in.read();
+        // Tolerate newlines some vendors put between records
+        while (first == '\n' || first == '\r') {
+            first = in.read();
+        }
+        if (first < 0) {
+            return null;
+        }
+        prefix[0] = (byte) first;
+        readFully(prefix, 1, 4);
+        int length = 0;
+        for (byte b : prefix) {
+            if (b < '0' || b > '9') {
+                throw new IOException("Corrupt MARC record length: " + new String(prefix, StandardCharsets.US_ASCII));
+            }
+            length = length * 10 + (b - '0');
+        }
+        if (length < LEADER_LENGTH + 1) {
+            throw new IOException("MARC record length " + length + " is shorter than the leader");
+        }
+        byte[] record = new byte[length];
+        System.arraycopy(prefix, 0, record, 0, prefix.length);
+        readFully(record, prefix.length, length - prefix.length);
+        return record;
+    }
+
+    @Override
+    Book parse(byte[] record) {
+        Charset charset = record[9] == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        int base = digits(record, 12, 5);
+        if (base <= LEADER_LENGTH || base > record.length) {
+            throw new IllegalArgumentException("invalid base address " + base);
+        }
+
+        String isbn = null, title = null, author = null, corporateAuthor = null, genre = null;
+        String publisher = null, date = null, description = null;
+        for (int entry = LEADER_LENGTH; entry + DIRECTORY_ENTRY <= base - 1 && record[entry] != FIELD_TERMINATOR;
+             entry += DIRECTORY_ENTRY) {
+            String tag = new String(record, entry, 3, StandardCharsets.US_ASCII);
+            int length = digits(record, entry + 3, 4);
+            int start = base + digits(record, entry + 7, 5);
+            if (start + length > record.length) {
+                throw new IllegalArgumentException("field " + tag + " runs past the end of the record");
+            }
+            switch (tag) {
+                case "020":
+                    if (isbn == null) {
+                        // "0306406152 (pbk.)" -> "0306406152"
+                        String value = subfield(record, start, length, 'a', charset);
+                        isbn = value == null ? null : value.trim().split("\\s+")[0];
+                    }
+                    break;
+                case "245":
+                    title = stripPunctuation(subfield(record, start, length, 'a', charset));
+                    break;
+                case "100":
+                    author = stripPunctuation(subfield(record, start, length, 'a', charset));
+                    break;
+                case "110":
+                    corporateAuthor = stripPunctuation(subfield(record, start, length, 'a', charset));
+                    break;
+                case "650":
+                    if (genre == null) {
+                        genre = stripPunctuation(subfield(record, start, length, 'a', charset));
+                    }
+                    break;
+                case "260":
+                case "264":
+                    // 264 is the RDA successor of 260; prefer whichever comes with a publisher
+                    String name = stripPunctuation(subfield(record, start, length, 'b', charset));
+                    if (name != null && (publisher == null || tag.equals("264"))) {
+                        publisher = name;
+                        date = subfield(record, start, length, 'c', charset);
+                    }
+                    break;
+                case "520":
+                    if (description == null) {
+                        description = subfield(record, start, length, 'a', charset);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return toBook(isbn, title, author != null ? author : corporateAuthor, genre, publisher, year(date), 1,
+                description);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, offset, length);
+            if (n < 0) {
+                throw new EOFException("MARC feed ends inside a record");
+            }
+            offset += n;
+            length -= n;
+        }
+    }
+
+    // First occurrence of $code in a data field (two indicators, then delimited subfields)
+    private static String subfield(byte[] record, int start, int length, char code, Charset charset) {
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            byte b = record[i];
+            if (b == FIELD_TERMINATOR || b == RECORD_TERMINATOR) {
+                break;
+            }
+            if (b == SUBFIELD_DELIMITER && i + 1 < end && record[i + 1] == code) {
+                int valueStart = i + 2;
+                int valueEnd = valueStart;
+                while (valueEnd < end && record[valueEnd] != SUBFIELD_DELIMITER
+                        && record[valueEnd] != FIELD_TERMINATOR && record[valueEnd] != RECORD_TERMINATOR) {
+                    valueEnd++;
+                }
+                return new String(record, valueStart, valueEnd - valueStart, charset);
+            }
+        }
+        return null;
+    }
+
+    private static int digits(byte[] record, int offset, int count) {
+        if (offset + count > record.length) {
+            throw new IllegalArgumentException("truncated leader or directory");
+        }
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            byte b = record[i];
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("non-numeric leader or directory at offset " + i);
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    // ISBD punctuation: "Effective Java /" -> "Effective Java"
+    private static String stripPunctuation(String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = value.length();
+        while (end > 0 && " /:;,.=".indexOf(value.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    // "c2018." or "[1994]" -> the first four-digit run, 0 if there is none
+    private static int year(String date) {
+        if (date == null) {
+            return 0;
+        }
+        Matcher matcher = YEAR.matcher(date);
+        return matcher.find() ? Integer.parseInt(matcher.group()) : 0;
+    }
+}
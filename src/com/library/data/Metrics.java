@@ -0,0 +1,121 @@
+package com.library.data;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the per-operation timers of {@link DataStorage} and
+ * {@link FileHandler}. Each timer is published as an MXBean under
+ * {@code com.library:type=Operation}, so JConsole or any JMX client can watch
+ * latencies live, and the operations that ran since the last dump are
+ * printed to standard output every {@code -Dlibrary.metrics.dumpSeconds}
+ * (default 300, 0 to turn off).
+ */
+public final class Metrics {
+    // Run -Dlibrary.metrics=false to turn all timing off
+    static final boolean ENABLED = !"false".equals(System.getProperty("library.metrics"));
+    private static final long DUMP_SECONDS = Long.getLong("library.metrics.dumpSeconds", 300);
+
+    private static final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    // Operation name -> count at the previous dump; only touched by the dump thread
+    private static final Map<String, Long> dumpedCounts = new HashMap<>();
+    private static long lastDumpNanos = System.nanoTime();
+
+    static {
+        if (ENABLED && DUMP_SECONDS > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleWithFixedDelay(Metrics::dump, DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /** The timer for {@code name}, created and registered with JMX on first use. */
+    static OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        OperationMetrics created = new OperationMetrics(name);
+        metrics = operations.putIfAbsent(name, created);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(created,
+                        new ObjectName("com.library:type=Operation,name=" + name));
+            } catch (JMException e) {
+                System.err.println("Error registering metrics for " + name + ": " + e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    /** Every operation timed so far, by name. */
+    public static List<OperationMetricsMXBean> getOperations() {
+        return new ArrayList<>(operations.values());
+    }
+
+    /** A table of every operation that has run at least once. */
+    public static String report() {
+        StringBuilder report = new StringBuilder(header());
+        for (OperationMetrics metrics : operations.values()) {
+            if (metrics.getCount() > 0) {
+                report.append(row(metrics, metrics.getRatePerSecond()));
+            }
+        }
+        return report.toString();
+    }
+
+    // Prints the operations that ran since the previous dump, with their rate over the interval
+    private static void dump() {
+        try {
+            long now = System.nanoTime();
+            double seconds = (now - lastDumpNanos) / 1e9;
+            lastDumpNanos = now;
+            StringBuilder report = new StringBuilder();
+            for (OperationMetrics metrics : operations.values()) {
+                long count = metrics.getCount();
+                Long previous = dumpedCounts.put(metrics.getName(), count);
+                long delta = count - (previous == null ? 0 : previous);
+                if (delta > 0) {
+                    report.append(row(metrics, delta / seconds));
+                }
+            }
+            if (report.length() > 0) {
+                System.out.print(String.format(Locale.ROOT, "Metrics for the last %.0f s%n", seconds)
+                        + header() + report);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; report it and keep dumping
+            System.err.println("Error dumping metrics: " + e.getMessage());
+        }
+    }
+
+    private static String header() {
+        return String.format(Locale.ROOT, "%-40s %10s %9s %9s %9s %9s %10s %12s%n",
+                "operation", "count", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us", "bytes");
+    }
+
+    private static String row(OperationMetrics metrics, double rate) {
+        return String.format(Locale.ROOT, "%-40s %10d %9.1f %9.1f %9.1f %9.1f %10.1f %12d%n",
+                metrics.getName(), metrics.getCount(), rate, metrics.getP50Micros(), metrics.getP99Micros(),
+                metrics.getP999Micros(), metrics.getMaxMicros(), metrics.getBytes());
+    }
+}
@@ -0,0 +1,783 @@
+package com.library.data;
+
+import com.library.models.Book;
+import com.library.models.Isbn;
+import com.library.models.ValueDictionary;
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * {@link BookStore} that keeps the catalog out of the Java heap, for
+ * catalogs of many millions of titles where a {@link Book} object graph per
+ * title makes full collections take seconds. Every book field is a column
+ * in a direct {@link ByteBuffer}: strings live in a {@link StringArena} and
+ * the columns hold their references, genres and publishers are ids into a
+ * small dictionary, and the ISBN index is an open-addressing table in a
+ * direct buffer too. The only per-book heap state is the available-copies
+ * counters, in int arrays the collector never has to trace.
+ *
+ * <p>Book rows are append-only: an update writes a new row and points the
+ * book's catalog slot at it, so a row never changes once written (except
+ * its available copies, which are live, as on a heap {@link Book}). That
+ * makes {@link #toList()} cheap: it copies the row numbers of the live
+ * slots and hands out a list that creates a {@link View} per element on
+ * demand, readable from any thread without the catalog lock. Slots are
+ * tombstoned on removal, and slots and rows are compacted into fresh
+ * buffers once the dead outnumber the live; lists and views handed out
+ * earlier keep the old buffers until they are collected.
+ *
+ * <p>There is no n-gram index (its postings would put millions of objects
+ * back on the heap), so search scans the columns. ASCII queries are matched
+ * against the UTF-8 bytes in place, and a book is only decoded if it has
+ * non-ASCII text or matches.
+ */
+final class OffHeapBookStore implements BookStore {
+    private static final int AVAILABLE_CHUNK_BITS = 14;
+    private static final int AVAILABLE_CHUNK = 1 << AVAILABLE_CHUNK_BITS;
+
+    private Rows rows = new Rows();
+    // Readers share the latest capture; rebuilt after any change to the rows
+    private Capture capture;
+
+    // Catalog slots, in insertion order: the book's current row and its sequence number
+    private final IntColumn slotRows = new IntColumn();
+    private final LongColumn sequences = new LongColumn();
+    private int slots;
+    private long lastSequence;
+    private final LiveSlots live = new LiveSlots();
+
+    // Genre and publisher values, copy-on-write so captures can share the array; id 0 is null
+    private String[] dictionary = new String[1];
+    private final Map<String, Integer> dictionaryIds = new HashMap<>();
+
+    // Open addressing with linear probing: slot + 1 per entry, 0 for empty
+    private IntColumn index;
+    private int indexMask;
+
+    private final AtomicLong dirtyPartitions = new AtomicLong();
+    private volatile long version;
+
+    OffHeapBookStore() {
+        resizeIndex(16);
+    }
+
+    @Override
+    public int size() {
+        return live.count();
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public Book get(String isbn) {
+        int slot = find(Isbn.normalize(isbn));
+        return slot >= 0 ? new View(capture(), slotRows.get(slot)) : null;
+    }
+
+    @Override
+    public boolean add(Book book) {
+        if (!append(book, lastSequence + 1)) {
+            return false;
+        }
+        markDirty(BookPartitions.bit(BookPartitions.partitionOf(book.getIsbn())));
+        return true;
+    }
+
+    @Override
+    public boolean restore(Book book, long sequence) {
+        return append(book, sequence);
+    }
+
+    private boolean append(Book book, long sequence) {
+        String key = Isbn.normalize(book.getIsbn());
+        if (key == null || find(key) >= 0) {
+            return false;
+        }
+        int slot = slots++;
+        slotRows.ensure(slots);
+        sequences.ensure(slots);
+        slotRows.set(slot, writeRow(book));
+        sequences.set(slot, sequence);
+        lastSequence = Math.max(lastSequence, sequence);
+        live.add(slot);
+        if (live.count() * 2 > indexMask + 1) {
+            resizeIndex((indexMask + 1) * 2);
+        } else {
+            insertIntoIndex(slot);
+        }
+        version++;
+        return true;
+    }
+
+    @Override
+    public Book replace(Book book) {
+        int slot = find(Isbn.normalize(book.getIsbn()));
+        if (slot < 0) {
+            return null;
+        }
+        Book previous = new View(capture(), slotRows.get(slot));
+        rows.release(slotRows.get(slot));
+        slotRows.set(slot, writeRow(book));
+        markDirty(BookPartitions.bit(BookPartitions.partitionOf(book.getIsbn())));
+        version++;
+        compactIfWasteful();
+        return previous;
+    }
+
+    @Override
+    public Book remove(String isbn) {
+        int slot = find(Isbn.normalize(isbn));
+        if (slot < 0) {
+            return null;
+        }
+        Book removed = new View(capture(), slotRows.get(slot));
+        removeFromIndex(slot);
+        live.remove(slot);
+        rows.release(slotRows.get(slot));
+        markDirty(BookPartitions.bit(BookPartitions.partitionOf(isbn)));
+        version++;
+        compactIfWasteful();
+        return removed;
+    }
+
+    /** O(log n). */
+    @Override
+    public int positionOf(String isbn) {
+        int slot = find(Isbn.normalize(isbn));
+        return slot >= 0 ? live.position(slot) : -1;
+    }
+
+    @Override
+    public void markDirty(long partitions) {
+        dirtyPartitions.accumulateAndGet(partitions, (a, b) -> a | b);
+    }
+
+    @Override
+    public long takeDirtyPartitions() {
+        return dirtyPartitions.getAndSet(0);
+    }
+
+    @Override
+    public List<List<BookPartitions.Entry>> partitionContents(long mask) {
+        List<List<BookPartitions.Entry>> partitions = new ArrayList<>(BookPartitions.COUNT);
+        for (int i = 0; i < BookPartitions.COUNT; i++) {
+            partitions.add((mask & BookPartitions.bit(i)) != 0 ? new ArrayList<>() : null);
+        }
+        Capture current = capture();
+        for (int slot = live.next(0); slot >= 0; slot = live.next(slot + 1)) {
+            Book book = new View(current, slotRows.get(slot));
+            int partition = BookPartitions.partitionOf(book.getIsbn());
+            if ((mask & BookPartitions.bit(partition)) != 0) {
+                partitions.get(partition).add(new BookPartitions.Entry(sequences.get(slot), book));
+            }
+        }
+        return partitions;
+    }
+
+    /** The live books as a list of views over the current rows; copies row numbers, creates no books. */
+    @Override
+    public List<Book> toList() {
+        int[] bookRows = new int[live.count()];
+        int count = 0;
+        for (int slot = live.next(0); slot >= 0; slot = live.next(slot + 1)) {
+            bookRows[count++] = slotRows.get(slot);
+        }
+        return new RowList(capture(), bookRows, count);
+    }
+
+    @Override
+    public List<Book> search(String query) {
+        if (query.isEmpty()) {
+            return toList();
+        }
+        Capture current = capture();
+        int[][] matched = {new int[16]};
+        int[] count = {0};
+        scan(current, query, row -> {
+            matched[0] = append(matched[0], count[0]++, row);
+            return true;
+        }, false);
+        return new RowList(current, matched[0], count[0]);
+    }
+
+    @Override
+    public void search(String query, Predicate<Book> consumer) {
+        Capture current = capture();
+        scan(current, query, row -> consumer.test(new View(current, row)), true);
+    }
+
+    // Offers the matching rows to the sink in catalog order until it returns false
+    private void scan(Capture current, String query, IntPredicate sink, boolean interruptible) {
+        String lowerQuery = query.toLowerCase();
+        int visited = 0;
+        // The byte scan lower-cases ASCII itself, which only agrees with String.toLowerCase for
+        // ASCII queries and locales that map I to i
+        if (!isAscii(query) || !isAscii(lowerQuery) || !"I".toLowerCase().equals("i")) {
+            for (int slot = live.next(0); slot >= 0; slot = live.next(slot + 1)) {
+                if (interruptible && (++visited & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                int row = slotRows.get(slot);
+                if (SearchIndex.matches(new View(current, row), query, lowerQuery) && !sink.test(row)) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        byte[] needle = query.getBytes(StandardCharsets.US_ASCII);
+        byte[] lowerNeedle = lowerQuery.getBytes(StandardCharsets.US_ASCII);
+        // Genres and publishers are matched once per dictionary value rather than once per book
+        boolean[] dictionaryMatches = new boolean[dictionaryIds.size() + 1];
+        for (int id = 0; id < dictionaryMatches.length; id++) {
+            String value = dictionary[id];
+            dictionaryMatches[id] = (value != null ? value.toLowerCase() : "").contains(lowerQuery);
+        }
+        for (int slot = live.next(0); slot >= 0; slot = live.next(slot + 1)) {
+            if (interruptible && (++visited & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            int row = slotRows.get(slot);
+            if ((dictionaryMatches[rows.genres.get(row)] || dictionaryMatches[rows.publishers.get(row)]
+                    || rows.arena.contains(rows.isbns.get(row), needle)
+                    || matchesText(rows.titles.get(row), lowerNeedle, lowerQuery)
+                    || matchesText(rows.authors.get(row), lowerNeedle, lowerQuery)) && !sink.test(row)) {
+                return;
+            }
+        }
+    }
+
+    // Same as lower(field).contains(lowerQuery) in SearchIndex, without decoding ASCII text
+    private boolean matchesText(long ref, byte[] lowerNeedle, String lowerQuery) {
+        int match = rows.arena.containsIgnoreCase(ref, lowerNeedle);
+        return match >= 0 ? match == 1 : rows.arena.get(ref).toLowerCase().contains(lowerQuery);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] append(int[] values, int index, int value) {
+        if (index == values.length) {
+            values = Arrays.copyOf(values, index * 2);
+        }
+        values[index] = value;
+        return values;
+    }
+
+    @Override
+    public Iterator<Book> iterator() {
+        Capture current = capture();
+        return new Iterator<Book>() {
+            private int cursor = live.next(0);
+
+            @Override
+            public boolean hasNext() {
+                return cursor >= 0;
+            }
+
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Book book = new View(current, slotRows.get(cursor));
+                cursor = live.next(cursor + 1);
+                return book;
+            }
+        };
+    }
+
+    private int writeRow(Book book) {
+        capture = null;
+        return rows.append(book, dictionaryId(book.getGenre()), dictionaryId(book.getPublisher()));
+    }
+
+    private int dictionaryId(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = dictionaryIds.get(value);
+        if (id == null) {
+            id = dictionaryIds.size() + 1;
+            if (id == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, id * 2);
+            }
+            dictionary[id] = ValueDictionary.intern(value);
+            dictionaryIds.put(dictionary[id], id);
+        }
+        return id;
+    }
+
+    // Racing readers may each build one; captures are immutable, so any of them will do
+    private Capture capture() {
+        Capture current = capture;
+        if (current == null) {
+            current = new Capture(rows, dictionary);
+            capture = current;
+        }
+        return current;
+    }
+
+    // Same trigger as BookCatalog for tombstones, plus dead rows left behind by updates
+    private void compactIfWasteful() {
+        boolean sparseSlots = slots > 16 && live.count() < slots / 2;
+        boolean sparseRows = rows.count > 16 && rows.dead > rows.count / 2;
+        if (sparseSlots || sparseRows) {
+            compact();
+        }
+    }
+
+    // Copies the live books, in catalog order, into fresh rows and slots
+    private void compact() {
+        Rows compacted = new Rows();
+        int next = 0;
+        for (int slot = live.next(0); slot >= 0; slot = live.next(slot + 1)) {
+            compacted.copy(rows, slotRows.get(slot));
+            slotRows.set(next, next);
+            sequences.set(next, sequences.get(slot));
+            next++;
+        }
+        rows = compacted;
+        capture = null;
+        slots = next;
+        live.compacted(next);
+        resizeIndex(indexMask + 1);
+    }
+
+    // ISBN index
+
+    private static int hash(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private int find(String key) {
+        // No book is stored under a null ISBN, as in the heap store
+        if (key == null) {
+            return -1;
+        }
+        byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        for (int i = hash & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = index.get(i);
+            if (entry == 0) {
+                return -1;
+            }
+            int row = slotRows.get(entry - 1);
+            if (rows.keyHashes.get(row) == hash && rows.arena.equalsBytes(rows.keys.get(row), utf8)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int home(int slot) {
+        return rows.keyHashes.get(slotRows.get(slot)) & indexMask;
+    }
+
+    private void insertIntoIndex(int slot) {
+        int i = home(slot);
+        while (index.get(i) != 0) {
+            i = (i + 1) & indexMask;
+        }
+        index.set(i, slot + 1);
+    }
+
+    // Backward-shift deletion: entries after the hole move up unless that would put them before their home
+    private void removeFromIndex(int slot) {
+        int hole = home(slot);
+        while (index.get(hole) != slot + 1) {
+            hole = (hole + 1) & indexMask;
+        }
+        for (int i = (hole + 1) & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = index.get(i);
+            if (entry == 0) {
+                break;
+            }
+            int home = home(entry - 1);
+            if (((i - home) & indexMask) >= ((i - hole) & indexMask)) {
+                index.set(hole, entry);
+                hole = i;
+            }
+        }
+        index.set(hole, 0);
+    }
+
+    // Rebuilds the index over the live slots; capacity is a power of two
+    private void resizeIndex(int capacity) {
+        while (capacity < live.count() * 2) {
+            capacity *= 2;
+        }
+        // Direct buffers start zeroed, so every entry is empty
+        index = new IntColumn();
+        index.ensure(capacity);
+        indexMask = capacity - 1;
+        for (int slot = live.next(0); slot >= 0; slot = live.next(slot + 1)) {
+            insertIntoIndex(slot);
+        }
+    }
+
+    /**
+     * Append-only book rows: one column per field, the string arena and the
+     * available-copies counters. Only the counters change after a row is written.
+     */
+    private static final class Rows {
+        final StringArena arena = new StringArena();
+        final LongColumn isbns = new LongColumn();
+        final LongColumn keys = new LongColumn();
+        final IntColumn keyHashes = new IntColumn();
+        final LongColumn titles = new LongColumn();
+        final LongColumn authors = new LongColumn();
+        final IntColumn genres = new IntColumn();
+        final IntColumn publishers = new IntColumn();
+        final IntColumn years = new IntColumn();
+        final IntColumn totalCopies = new IntColumn();
+        final LongColumn descriptions = new LongColumn();
+        // Chunked, so growing never moves a counter
+        AtomicIntegerArray[] available = new AtomicIntegerArray[0];
+        int count;
+        // Rows no slot points to any more
+        int dead;
+
+        int append(Book book, int genre, int publisher) {
+            String key = Isbn.normalize(book.getIsbn());
+            int row = grow();
+            isbns.set(row, arena.append(book.getIsbn()));
+            keys.set(row, arena.append(key));
+            keyHashes.set(row, hash(key));
+            titles.set(row, arena.append(book.getTitle()));
+            authors.set(row, arena.append(book.getAuthor()));
+            genres.set(row, genre);
+            publishers.set(row, publisher);
+            years.set(row, book.getPublicationYear());
+            totalCopies.set(row, book.getTotalCopies());
+            descriptions.set(row, arena.append(book.getDescription()));
+            available[row >>> AVAILABLE_CHUNK_BITS].set(row & (AVAILABLE_CHUNK - 1), book.getAvailableCopies());
+            return row;
+        }
+
+        /** Appends a copy of another row, strings copied without decoding. */
+        void copy(Rows from, int source) {
+            int row = grow();
+            isbns.set(row, arena.copy(from.arena, from.isbns.get(source)));
+            keys.set(row, arena.copy(from.arena, from.keys.get(source)));
+            keyHashes.set(row, from.keyHashes.get(source));
+            titles.set(row, arena.copy(from.arena, from.titles.get(source)));
+            authors.set(row, arena.copy(from.arena, from.authors.get(source)));
+            genres.set(row, from.genres.get(source));
+            publishers.set(row, from.publishers.get(source));
+            years.set(row, from.years.get(source));
+            totalCopies.set(row, from.totalCopies.get(source));
+            descriptions.set(row, arena.copy(from.arena, from.descriptions.get(source)));
+            available[row >>> AVAILABLE_CHUNK_BITS].set(row & (AVAILABLE_CHUNK - 1),
+                    from.available[source >>> AVAILABLE_CHUNK_BITS].get(source & (AVAILABLE_CHUNK - 1)));
+        }
+
+        void release(int row) {
+            dead++;
+            for (long ref : new long[] {isbns.get(row), keys.get(row), titles.get(row), authors.get(row),
+                    descriptions.get(row)}) {
+                arena.release(ref);
+            }
+        }
+
+        private int grow() {
+            int row = count++;
+            for (LongColumn column : new LongColumn[] {isbns, keys, titles, authors, descriptions}) {
+                column.ensure(count);
+            }
+            for (IntColumn column : new IntColumn[] {keyHashes, genres, publishers, years, totalCopies}) {
+                column.ensure(count);
+            }
+            if (row >>> AVAILABLE_CHUNK_BITS == available.length) {
+                // Copy-on-write, so captures keep a stable array
+                available = Arrays.copyOf(available, available.length + 1);
+                available[available.length - 1] = new AtomicIntegerArray(AVAILABLE_CHUNK);
+            }
+            return row;
+        }
+    }
+
+    /**
+     * The buffers of the rows written so far. Rows are never rewritten and
+     * buffers are replaced rather than resized, so a capture stays valid,
+     * and safe to read without a lock, for every row written before it.
+     */
+    private static final class Capture {
+        final ByteBuffer[] chunks;
+        final ByteBuffer isbns;
+        final ByteBuffer titles;
+        final ByteBuffer authors;
+        final ByteBuffer genres;
+        final ByteBuffer publishers;
+        final ByteBuffer years;
+        final ByteBuffer totalCopies;
+        final ByteBuffer descriptions;
+        final AtomicIntegerArray[] available;
+        final String[] dictionary;
+
+        Capture(Rows rows, String[] dictionary) {
+            chunks = rows.arena.chunks();
+            isbns = rows.isbns.buffer;
+            titles = rows.titles.buffer;
+            authors = rows.authors.buffer;
+            genres = rows.genres.buffer;
+            publishers = rows.publishers.buffer;
+            years = rows.years.buffer;
+            totalCopies = rows.totalCopies.buffer;
+            descriptions = rows.descriptions.buffer;
+            available = rows.available;
+            this.dictionary = dictionary;
+        }
+
+        String string(ByteBuffer column, int row) {
+            return StringArena.get(chunks, column.getLong(row << 3));
+        }
+
+        int number(ByteBuffer column, int row) {
+            return column.getInt(row << 2);
+        }
+
+        AtomicIntegerArray counters(int row) {
+            return available[row >>> AVAILABLE_CHUNK_BITS];
+        }
+    }
+
+    /** Immutable list of the books in some rows, created as views when read. */
+    private static final class RowList extends AbstractList<Book> implements RandomAccess {
+        private final Capture rows;
+        private final int[] bookRows;
+        private final int size;
+
+        RowList(Capture rows, int[] bookRows, int size) {
+            this.rows = rows;
+            this.bookRows = bookRows;
+            this.size = size;
+        }
+
+        @Override
+        public Book get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            }
+            return new View(rows, bookRows[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A book row, read from the captured buffers when asked. Strings that
+     * lookups and sorting read repeatedly are decoded once; a racing decode
+     * just produces an equal string. The available copies are the row's live
+     * counter, so circulation works through a view as through a heap
+     * {@link Book}; the other setters are refused.
+     */
+    private static final class View extends Book {
+        private static final long serialVersionUID = 1L;
+
+        private final Capture rows;
+        private final int row;
+        private String isbn;
+        private String title;
+        private String author;
+
+        View(Capture rows, int row) {
+            super(null, null, null, null, null, 0, 0, null);
+            this.rows = rows;
+            this.row = row;
+        }
+
+        @Override
+        public String getIsbn() {
+            String value = isbn;
+            if (value == null) {
+                isbn = value = rows.string(rows.isbns, row);
+            }
+            return value;
+        }
+
+        @Override
+        public String getTitle() {
+            String value = title;
+            if (value == null) {
+                title = value = rows.string(rows.titles, row);
+            }
+            return value;
+        }
+
+        @Override
+        public String getAuthor() {
+            String value = author;
+            if (value == null) {
+                author = value = rows.string(rows.authors, row);
+            }
+            return value;
+        }
+
+        @Override
+        public String getGenre() {
+            return rows.dictionary[rows.number(rows.genres, row)];
+        }
+
+        @Override
+        public String getPublisher() {
+            return rows.dictionary[rows.number(rows.publishers, row)];
+        }
+
+        @Override
+        public int getPublicationYear() {
+            return rows.number(rows.years, row);
+        }
+
+        @Override
+        public int getTotalCopies() {
+            return rows.number(rows.totalCopies, row);
+        }
+
+        @Override
+        public int getAvailableCopies() {
+            return rows.counters(row).get(row & (AVAILABLE_CHUNK - 1));
+        }
+
+        @Override
+        public String getDescription() {
+            return rows.string(rows.descriptions, row);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return getAvailableCopies() > 0;
+        }
+
+        @Override
+        public void setAvailableCopies(int availableCopies) {
+            rows.counters(row).set(row & (AVAILABLE_CHUNK - 1), availableCopies);
+        }
+
+        @Override
+        public int checkoutCopy() {
+            AtomicIntegerArray counters = rows.counters(row);
+            int cell = row & (AVAILABLE_CHUNK - 1);
+            for (;;) {
+                int available = counters.get(cell);
+                if (available <= 0) {
+                    return 0;
+                }
+                if (counters.compareAndSet(cell, available, available - 1)) {
+                    return available;
+                }
+            }
+        }
+
+        @Override
+        public int checkinCopy() {
+            AtomicIntegerArray counters = rows.counters(row);
+            int cell = row & (AVAILABLE_CHUNK - 1);
+            int total = getTotalCopies();
+            for (;;) {
+                int available = counters.get(cell);
+                if (available >= total) {
+                    return -1;
+                }
+                if (counters.compareAndSet(cell, available, available + 1)) {
+                    return available;
+                }
+            }
+        }
+
+        @Override
+        public void setTotalCopies(int totalCopies) {
+            throw new UnsupportedOperationException("Catalog views are read-only; update the book instead");
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw new UnsupportedOperationException("Catalog views are read-only; update the book instead");
+        }
+
+        // Serialized as the plain Book it stands for
+        private Object writeReplace() throws ObjectStreamException {
+            Book copy = new Book(getIsbn(), getTitle(), getAuthor(), getGenre(), getPublisher(),
+                    getPublicationYear(), getTotalCopies(), getDescription());
+            copy.setAvailableCopies(getAvailableCopies());
+            return copy;
+        }
+    }
+
+    // Columns: one direct buffer each, replaced by a larger copy as rows are added
+
+    private static final class LongColumn {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+
+        long get(int row) {
+            return buffer.getLong(row << 3);
+        }
+
+        void set(int row, long value) {
+            buffer.putLong(row << 3, value);
+        }
+
+        void ensure(int rows) {
+            buffer = grow(buffer, rows, 8);
+        }
+    }
+
+    private static final class IntColumn {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+
+        int get(int row) {
+            return buffer.getInt(row << 2);
+        }
+
+        void set(int row, int value) {
+            buffer.putInt(row << 2, value);
+        }
+
+        void ensure(int rows) {
+            buffer = grow(buffer, rows, 4);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int rows, int width) {
+        if ((long) rows * width <= buffer.capacity()) {
+            return buffer;
+        }
+        long capacity = Math.min(Integer.MAX_VALUE,
+                Math.max((long) rows * width, Math.max(16L * width, buffer.capacity() * 2L)));
+        if ((long) rows * width > capacity) {
+            throw new IllegalStateException("Catalog column exceeds 2 GB at " + rows + " rows");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+        grown.put(source);
+        grown.clear();
+        return grown;
+    }
+}
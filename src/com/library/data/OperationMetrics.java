@@ -0,0 +1,95 @@
+package com.library.data;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timer for one operation. Callers bracket the work with
+ * {@code long start = metrics.start(); try { ... } finally { metrics.stop(start); }};
+ * with {@code -Dlibrary.metrics=false} both calls are no-ops.
+ */
+class OperationMetrics implements OperationMetricsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder bytes = new LongAdder();
+    private volatile long sinceNanos = System.nanoTime();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public long start() {
+        return Metrics.ENABLED ? System.nanoTime() : 0;
+    }
+
+    public void stop(long startNanos) {
+        if (Metrics.ENABLED) {
+            latency.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /** Like {@link #stop(long)}, also counting the bytes the operation moved. */
+    public void stop(long startNanos, long byteCount) {
+        if (Metrics.ENABLED) {
+            latency.record(System.nanoTime() - startNanos);
+            bytes.add(byteCount);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        double seconds = (System.nanoTime() - sinceNanos) / 1e9;
+        return seconds <= 0 ? 0 : latency.count() / seconds;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.mean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.percentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latency.percentile(0.9) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.percentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.percentile(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.max() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        bytes.reset();
+        sinceNanos = System.nanoTime();
+    }
+}
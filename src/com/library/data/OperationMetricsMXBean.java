@@ -0,0 +1,33 @@
+package com.library.data;
+
+/**
+ * Latency and throughput of one storage or file operation, published over
+ * JMX as {@code com.library:type=Operation,name=<operation>}. Latencies
+ * are in microseconds and cover every call since start-up or the last
+ * {@link #reset}.
+ */
+public interface OperationMetricsMXBean {
+    String getName();
+
+    long getCount();
+
+    /** Bytes written or read by the operation; 0 for in-memory operations. */
+    long getBytes();
+
+    /** Calls per second since start-up or the last reset. */
+    double getRatePerSecond();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,13 @@
+package com.library.data;
+
+import com.library.models.BorrowRecord;
+import java.util.List;
+
+/**
+ * Notified by the overdue scheduler when loans pass their due date. Each
+ * loan is reported once, in due-date order, in batches; callbacks run on
+ * the scheduler thread.
+ */
+public interface OverdueListener {
+    void loansOverdue(List<BorrowRecord> loans);
+}
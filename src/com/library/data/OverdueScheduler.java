@@ -0,0 +1,81 @@
+package com.library.data;
+
+import com.library.models.BorrowRecord;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps the {@link LoanIndex} on a background thread and reports loans
+ * that have become overdue since the previous sweep. Each listener keeps
+ * its own cutoff, starting before any due date, so a listener added later
+ * still hears about loans that were already overdue. A sweep reads only the
+ * due-date range between a listener's cutoff and now, so each loan is
+ * reported to it exactly once and a sweep costs O(log n + k) per listener.
+ * The thread starts with the first listener.
+ */
+class OverdueScheduler {
+    // Run -Dlibrary.overdue.sweepSeconds=N to change how often overdue loans are collected
+    private static final long SWEEP_SECONDS = Long.getLong("library.overdue.sweepSeconds", 60);
+    private static final int MAX_BATCH = 500;
+
+    private final LoanIndex loans;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+
+    OverdueScheduler(LoanIndex loans) {
+        this.loans = loans;
+    }
+
+    public synchronized void addListener(OverdueListener listener) {
+        subscriptions.add(new Subscription(listener));
+        if (executor != null) {
+            // Report what is already overdue now rather than at the next scheduled sweep
+            executor.execute(this::sweep);
+        } else {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "overdue-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::sweep, 0, SWEEP_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public void removeListener(OverdueListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Subscription subscription : subscriptions) {
+            try {
+                List<BorrowRecord> overdue = loans.dueBetween(subscription.cutoff, now - 1);
+                subscription.cutoff = now - 1;
+                for (int from = 0; from < overdue.size(); from += MAX_BATCH) {
+                    subscription.listener.loansOverdue(
+                            overdue.subList(from, Math.min(overdue.size(), from + MAX_BATCH)));
+                }
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule; report it and keep sweeping
+                System.err.println("Error reporting overdue loans: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Subscription {
+        final OverdueListener listener;
+        // Loans due at or before this instant have been reported; only touched by the sweep thread
+        long cutoff = Long.MIN_VALUE;
+
+        Subscription(OverdueListener listener) {
+            this.listener = listener;
+        }
+    }
+}
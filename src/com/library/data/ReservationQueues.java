@@ -0,0 +1,104 @@
+package com.library.data;
+
+import com.library.models.Isbn;
+import com.library.models.Reservation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FIFO hold queues, one lock-free queue per normalized ISBN. A second map
+ * keyed by patron and ISBN keeps a patron to one hold per book. Removal
+ * goes through {@link #remove}, which succeeds for exactly one caller, so
+ * concurrent hand-offs and cancellations of the same hold cannot both win.
+ */
+class ReservationQueues {
+    private final Map<String, Queue<Reservation>> queues = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> byPatron = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    /** Queues a hold; returns null if the patron already has one on this book. */
+    public Reservation place(String username, String isbn, long now) {
+        Reservation reservation = new Reservation(lastId.incrementAndGet(), username, isbn, now);
+        if (byPatron.putIfAbsent(patronKey(username, isbn), reservation) != null) {
+            return null;
+        }
+        queue(isbn).add(reservation);
+        return reservation;
+    }
+
+    /** Re-adds a persisted hold; callers restore holds in id order. */
+    public void restore(Reservation reservation) {
+        lastId.accumulateAndGet(reservation.getId(), Math::max);
+        if (byPatron.putIfAbsent(patronKey(reservation.getUsername(), reservation.getIsbn()), reservation) == null) {
+            queue(reservation.getIsbn()).add(reservation);
+        }
+    }
+
+    /** The next patron in line for the book, or null. */
+    public Reservation peek(String isbn) {
+        Queue<Reservation> queue = queues.get(Isbn.normalize(isbn));
+        return queue == null ? null : queue.peek();
+    }
+
+    public boolean hasWaiting(String isbn) {
+        return peek(isbn) != null;
+    }
+
+    /** Takes the hold out of its queue; true for exactly one of several concurrent callers. */
+    public boolean remove(Reservation reservation) {
+        Queue<Reservation> queue = queues.get(Isbn.normalize(reservation.getIsbn()));
+        if (queue == null || !queue.remove(reservation)) {
+            return false;
+        }
+        byPatron.remove(patronKey(reservation.getUsername(), reservation.getIsbn()), reservation);
+        return true;
+    }
+
+    /** Removes and returns the patron's hold on the book, or null if they have none. */
+    public Reservation cancel(String username, String isbn) {
+        Reservation reservation = byPatron.get(patronKey(username, isbn));
+        return reservation != null && remove(reservation) ? reservation : null;
+    }
+
+    /** 1-based place of the patron in the book's queue, or 0 if they are not waiting. */
+    public int position(String username, String isbn) {
+        Reservation reservation = byPatron.get(patronKey(username, isbn));
+        if (reservation == null) {
+            return 0;
+        }
+        int position = 1;
+        for (Reservation waiting : queue(isbn)) {
+            if (waiting == reservation) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    /** Holds on the book in queue order. */
+    public List<Reservation> forIsbn(String isbn) {
+        Queue<Reservation> queue = queues.get(Isbn.normalize(isbn));
+        return queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+    }
+
+    /** Every waiting hold, for checkpointing. */
+    public List<Reservation> all() {
+        return new ArrayList<>(byPatron.values());
+    }
+
+    // Queues are never removed once created, so adding to one needs no lock
+    private Queue<Reservation> queue(String isbn) {
+        return queues.computeIfAbsent(Isbn.normalize(isbn), key -> new ConcurrentLinkedQueue<>());
+    }
+
+    private static String patronKey(String username, String isbn) {
+        return username.toLowerCase(Locale.ROOT) + '\u0000' + Isbn.normalize(isbn);
+    }
+}
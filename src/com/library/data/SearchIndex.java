@@ -0,0 +1,209 @@
+package com.library.data;
+
+import com.library.models.Book;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted trigram index over the searchable book fields (title, author,
+ * genre, publisher and ISBN), keyed by the catalog slot of each book.
+ * Every trigram of a lower-cased field is posted; a query of three or more
+ * characters is answered by intersecting the postings of its trigrams, and
+ * shorter queries are left to a scan, which would visit most of the catalog
+ * anyway. Results are candidate slots; callers verify them against
+ * {@link #matches} to get exact substring semantics.
+ *
+ * <p>A posting is a sorted {@code int[]} of slots until it covers more
+ * than one slot in {@value #DENSE_RATIO}, when a bitset is smaller, so a
+ * gram found in most books costs one bit per slot rather than an object per
+ * book.
+ */
+class SearchIndex {
+    private static final int GRAM = 3;
+    // A posting switches to a bitset once it holds more than one slot in this many
+    private static final int DENSE_RATIO = 32;
+
+    private final Map<String, Posting> postings = new HashMap<>();
+    // One past the highest slot posted; sizes the dense threshold
+    private int slotLimit;
+
+    public void add(int slot, Book book) {
+        slotLimit = Math.max(slotLimit, slot + 1);
+        for (String gram : grams(book)) {
+            postings.computeIfAbsent(gram, g -> new Posting()).add(slot, slotLimit);
+        }
+    }
+
+    public void remove(int slot, Book book) {
+        for (String gram : grams(book)) {
+            Posting posting = postings.get(gram);
+            if (posting != null && posting.remove(slot) && posting.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Renumbers slots after the catalog has compacted them: {@code newSlots[old]}
+     * is a book's new slot. Compaction keeps slot order, so postings stay sorted.
+     */
+    public void renumber(int[] newSlots, int newLimit) {
+        slotLimit = newLimit;
+        for (Posting posting : postings.values()) {
+            posting.renumber(newSlots, newLimit);
+        }
+    }
+
+    /**
+     * Returns the slots of books that may match the lower-cased query, in
+     * ascending order, or null if the query is too short for the index and
+     * every book must be checked.
+     */
+    public int[] candidates(String lowerQuery) {
+        if (lowerQuery.length() < GRAM) {
+            return null;
+        }
+
+        // Walk the rarest posting so intersection work is bounded by the smallest one
+        Posting[] grams = new Posting[lowerQuery.length() - GRAM + 1];
+        Posting smallest = null;
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = postings.get(lowerQuery.substring(i, i + GRAM));
+            if (grams[i] == null) {
+                return new int[0];
+            }
+            if (smallest == null || grams[i].size < smallest.size) {
+                smallest = grams[i];
+            }
+        }
+
+        int[] result = new int[smallest.size];
+        int count = 0;
+        for (int slot : smallest.toArray()) {
+            boolean all = true;
+            for (Posting posting : grams) {
+                if (posting != smallest && !posting.contains(slot)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                result[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /** The substring predicate the index answers; also used to verify candidates. */
+    public static boolean matches(Book book, String query, String lowerQuery) {
+        return lower(book.getTitle()).contains(lowerQuery) ||
+               lower(book.getAuthor()).contains(lowerQuery) ||
+               lower(book.getGenre()).contains(lowerQuery) ||
+               book.getIsbn().contains(query) ||
+               lower(book.getPublisher()).contains(lowerQuery);
+    }
+
+    // The distinct trigrams of the book's fields, so a book is posted once per gram
+    private static Iterable<String> grams(Book book) {
+        Map<String, Boolean> grams = new HashMap<>();
+        for (String field : new String[] {
+                lower(book.getTitle()), lower(book.getAuthor()), lower(book.getGenre()),
+                lower(book.getPublisher()), lower(book.getIsbn())}) {
+            for (int start = 0; start + GRAM <= field.length(); start++) {
+                grams.put(field.substring(start, start + GRAM), Boolean.TRUE);
+            }
+        }
+        return grams.keySet();
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase() : "";
+    }
+
+    /** The slots of one gram: a sorted array while sparse, a bitset once dense. */
+    private static final class Posting {
+        private int[] slots = new int[2];
+        private BitSet bits;
+        int size;
+
+        void add(int slot, int slotLimit) {
+            if (bits != null) {
+                if (!bits.get(slot)) {
+                    bits.set(slot);
+                    size++;
+                }
+                return;
+            }
+            int at = size > 0 && slots[size - 1] < slot ? size : Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0 && at < size) {
+                return;
+            }
+            int insert = at >= 0 ? at : -at - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, insert, slots, insert + 1, size - insert);
+            slots[insert] = slot;
+            size++;
+            if (size > 64 && size > slotLimit / DENSE_RATIO) {
+                toBits();
+            }
+        }
+
+        boolean remove(int slot) {
+            if (bits != null) {
+                if (!bits.get(slot)) {
+                    return false;
+                }
+                bits.clear(slot);
+                size--;
+                return true;
+            }
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int slot) {
+            return bits != null ? bits.get(slot) : Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+
+        /** The slots in ascending order. */
+        int[] toArray() {
+            return bits != null ? bits.stream().toArray() : Arrays.copyOf(slots, size);
+        }
+
+        void renumber(int[] newSlots, int newLimit) {
+            int[] renumbered = new int[size];
+            int count = 0;
+            for (int slot : toArray()) {
+                if (newSlots[slot] >= 0) {
+                    renumbered[count++] = newSlots[slot];
+                }
+            }
+            bits = null;
+            slots = renumbered;
+            size = count;
+            if (size > 64 && size > newLimit / DENSE_RATIO) {
+                toBits();
+            } else if (slots.length == 0) {
+                slots = new int[2];
+            }
+        }
+
+        private void toBits() {
+            BitSet dense = new BitSet();
+            for (int i = 0; i < size; i++) {
+                dense.set(slots[i]);
+            }
+            bits = dense;
+            slots = null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.library.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only string storage in direct (off-heap) buffers. Each string is
+ * written once as a length-prefixed UTF-8 run and addressed by a
+ * {@code long} reference (chunk index in the high half, offset in the low
+ * half); {@link #NULL} stands for a null string.
+ *
+ * <p>Bytes are never overwritten or moved, so a reader holding a reference
+ * and the {@link #chunks()} captured with it can decode the string at any
+ * later time without a lock, even after the arena has grown or been
+ * replaced by a compacted copy. Replaced strings are only counted as
+ * garbage; the owner compacts by copying live strings into a new arena.
+ */
+final class StringArena {
+    static final long NULL = -1L;
+    private static final int CHUNK_SIZE = 16 << 20;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    // Write position in the last chunk
+    private int position;
+    private long size;
+    private long garbage;
+
+    /** Bytes written, live or not. */
+    long size() {
+        return size;
+    }
+
+    /** Bytes taken by strings that have been {@link #release released}. */
+    long garbage() {
+        return garbage;
+    }
+
+    /**
+     * The chunks written so far. Every reference returned before this call
+     * stays readable through the returned array.
+     */
+    ByteBuffer[] chunks() {
+        return chunks;
+    }
+
+    long append(String value) {
+        return value == null ? NULL : append(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Copies a string from another arena without decoding it. */
+    long copy(StringArena from, long ref) {
+        if (ref == NULL) {
+            return NULL;
+        }
+        ByteBuffer source = from.chunks[chunk(ref)];
+        byte[] utf8 = new byte[source.getInt(offset(ref))];
+        ByteBuffer view = source.duplicate();
+        view.position(offset(ref) + 4);
+        view.get(utf8);
+        return append(utf8);
+    }
+
+    /** Marks a string as no longer referenced. */
+    void release(long ref) {
+        if (ref != NULL) {
+            garbage += 4 + chunks[chunk(ref)].getInt(offset(ref));
+        }
+    }
+
+    String get(long ref) {
+        return get(chunks, ref);
+    }
+
+    static String get(ByteBuffer[] chunks, long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        ByteBuffer chunk = chunks[chunk(ref)];
+        byte[] utf8 = new byte[chunk.getInt(offset(ref))];
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset(ref) + 4);
+        view.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /** Whether the string at {@code ref} is exactly {@code utf8}; a null array only equals {@link #NULL}. */
+    boolean equalsBytes(long ref, byte[] utf8) {
+        if (ref == NULL || utf8 == null) {
+            return ref == NULL && utf8 == null;
+        }
+        ByteBuffer chunk = chunks[chunk(ref)];
+        int offset = offset(ref);
+        if (chunk.getInt(offset) != utf8.length) {
+            return false;
+        }
+        for (int i = 0; i < utf8.length; i++) {
+            if (chunk.get(offset + 4 + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Whether the string contains {@code needle} (bytes). A null string contains nothing. */
+    boolean contains(long ref, byte[] needle) {
+        if (ref == NULL) {
+            return false;
+        }
+        ByteBuffer chunk = chunks[chunk(ref)];
+        int start = offset(ref) + 4;
+        int last = start + chunk.getInt(offset(ref)) - needle.length;
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < needle.length && chunk.get(i + j) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the string, lower-cased as ASCII, contains {@code lowerNeedle}
+     * (lower-case ASCII): 1 if it does, 0 if not, or -1 if the string has
+     * non-ASCII characters and the caller must decide on the decoded string.
+     * A null string reads as empty, as in {@link SearchIndex#matches}.
+     */
+    int containsIgnoreCase(long ref, byte[] lowerNeedle) {
+        if (ref == NULL) {
+            return lowerNeedle.length == 0 ? 1 : 0;
+        }
+        ByteBuffer chunk = chunks[chunk(ref)];
+        int start = offset(ref) + 4;
+        int end = start + chunk.getInt(offset(ref));
+        for (int i = start; i < end; i++) {
+            if (chunk.get(i) < 0) {
+                return -1;
+            }
+        }
+        for (int i = start; i <= end - lowerNeedle.length; i++) {
+            int j = 0;
+            while (j < lowerNeedle.length && toLower(chunk.get(i + j)) == lowerNeedle[j]) {
+                j++;
+            }
+            if (j == lowerNeedle.length) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static byte toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private long append(byte[] utf8) {
+        int length = 4 + utf8.length;
+        if (chunks.length == 0 || position + length > chunks[chunks.length - 1].capacity()) {
+            addChunk(Math.max(CHUNK_SIZE, length));
+        }
+        long ref = (long) (chunks.length - 1) << 32 | position;
+        ByteBuffer chunk = chunks[chunks.length - 1].duplicate();
+        chunk.position(position);
+        chunk.putInt(utf8.length);
+        chunk.put(utf8);
+        position += length;
+        size += length;
+        return ref;
+    }
+
+    // Copy-on-write, so arrays already handed out by chunks() never change
+    private void addChunk(int capacity) {
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = ByteBuffer.allocateDirect(capacity);
+        position = 0;
+    }
+
+    private static int chunk(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int offset(long ref) {
+        return (int) ref;
+    }
+}
@@ -2,6 +2,7 @@ package com.library.gui;
 
 import com.library.models.Book;
 import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
 import java.util.List;
 
 public class BookTableModel extends AbstractTableModel {
@@ -16,6 +17,21 @@ public class BookTableModel extends AbstractTableModel {
         this.books = books;
     }
 
+    /** Appends rows to a model backed by a mutable list, e.g. as search results stream in. */
+    public void appendBooks(List<Book> more) {
+        if (more.isEmpty()) {
+            return;
+        }
+        int first = books.size();
+        books.addAll(more);
+        fireTableRowsInserted(first, books.size() - 1);
+    }
+
+    public void clear() {
+        books = new ArrayList<>();
+        fireTableDataChanged();
+    }
+
     @Override
     public int getRowCount() {
         return books.size();
@@ -31,9 +47,16 @@ public class BookTableModel extends AbstractTableModel {
         return columnNames[column];
     }
 
+    protected Book getBookAt(int rowIndex) {
+        return books.get(rowIndex);
+    }
+
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Book book = books.get(rowIndex);
+        Book book = getBookAt(rowIndex);
+        if (book == null) {
+            return null;
+        }
         switch (columnIndex) {
             case 0:
                 return book.getIsbn();
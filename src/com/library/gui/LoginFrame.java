@@ -163,6 +163,19 @@ public class LoginFrame extends JFrame {
         }
     }
 
+    // The catalog loads in the background; the main window opens once it is ready
+    private void openMainFrame() {
+        if (!dataStorage.isCatalogReady()) {
+            loginButton.setEnabled(false);
+            loginButton.setText("Loading catalog...");
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+        dataStorage.whenCatalogReady().thenRun(() -> SwingUtilities.invokeLater(() -> {
+            new MainFrame().setVisible(true);
+            dispose();
+        }));
+    }
+
     private class LoginAction implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
@@ -183,8 +196,7 @@ public class LoginFrame extends JFrame {
                         "Welcome, " + user.getFullName() + "!",
                         "Login Successful", JOptionPane.INFORMATION_MESSAGE);
                 
-                new MainFrame().setVisible(true);
-                dispose();
+                openMainFrame();
             } else {
                 JOptionPane.showMessageDialog(LoginFrame.this,
                         "Invalid username or password",
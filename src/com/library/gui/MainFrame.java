@@ -1,15 +1,36 @@
 package com.library.gui;
 
+import com.library.data.CatalogExporter;
+import com.library.data.CatalogImporter;
 import com.library.data.DataStorage;
+import com.library.data.FacetCounts;
+import com.library.data.ImportReport;
+import com.library.data.OverdueListener;
 import com.library.models.Book;
+import com.library.models.BorrowRecord;
 import com.library.models.User;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.text.DateFormat;
+import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainFrame extends JFrame {
     private DataStorage dataStorage;
@@ -17,11 +38,16 @@ public class MainFrame extends JFrame {
     private JTabbedPane tabbedPane;
     private BookPanel bookPanel;
     private SearchPanel searchPanel;
+    // Reminds the logged-in patron about their loans as they become overdue
+    private final OverdueListener overdueListener = this::showOverdueNotice;
 
     public MainFrame() {
         dataStorage = DataStorage.getInstance();
         currentUser = dataStorage.getCurrentUser();
         initializeUI();
+        if (currentUser != null) {
+            dataStorage.addOverdueListener(overdueListener);
+        }
     }
 
     private void initializeUI() {
@@ -80,6 +106,30 @@ public class MainFrame extends JFrame {
         setJMenuBar(menuBar);
     }
 
+    // Called on the scheduler thread with loans of every patron
+    private void showOverdueNotice(List<BorrowRecord> loans) {
+        StringBuilder titles = new StringBuilder();
+        for (BorrowRecord loan : loans) {
+            if (loan.getUsername().equalsIgnoreCase(currentUser.getUsername())) {
+                Book book = dataStorage.findBookByIsbn(loan.getIsbn());
+                titles.append("\n").append(book != null ? book.getTitle() : loan.getIsbn());
+            }
+        }
+        if (titles.length() > 0) {
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                    "These books are overdue, please return them:" + titles,
+                    "Overdue Books", JOptionPane.WARNING_MESSAGE));
+        }
+    }
+
+    @Override
+    public void dispose() {
+        dataStorage.removeOverdueListener(overdueListener);
+        bookPanel.dispose();
+        searchPanel.dispose();
+        super.dispose();
+    }
+
     private void logout() {
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to logout?",
@@ -101,7 +151,8 @@ public class MainFrame extends JFrame {
     // Inner classes for different panels
     private class BookPanel extends JPanel {
         private JTable bookTable;
-        private BookTableModel tableModel;
+        private PagedBookTableModel tableModel;
+        private JTextField filterField;
 
         public BookPanel() {
             setLayout(new BorderLayout());
@@ -109,10 +160,19 @@ public class MainFrame extends JFrame {
         }
 
         private void initializeComponents() {
-            // Table
-            tableModel = new BookTableModel(dataStorage.getAllBooks());
+            // Table: rows are paged in from storage on demand, and sorted there too
+            tableModel = new PagedBookTableModel(dataStorage);
             bookTable = new JTable(tableModel);
             bookTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            bookTable.getTableHeader().addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int column = bookTable.columnAtPoint(e.getPoint());
+                    if (column >= 0) {
+                        tableModel.sortByColumn(bookTable.convertColumnIndexToModel(column));
+                    }
+                }
+            });
             
             // Set column widths
             bookTable.getColumnModel().getColumn(0).setPreferredWidth(120); // ISBN
@@ -127,26 +187,121 @@ public class MainFrame extends JFrame {
             JScrollPane scrollPane = new JScrollPane(bookTable);
             add(scrollPane, BorderLayout.CENTER);
 
-            // Refresh button
+            // Filter and refresh
+            filterField = new JTextField(20);
+            filterField.addActionListener(e -> tableModel.setFilter(filterField.getText()));
             JButton refreshButton = new JButton("Refresh");
             refreshButton.addActionListener(e -> refreshBooks());
+            JButton borrowButton = new JButton("Borrow");
+            borrowButton.addActionListener(e -> borrowSelected());
+            JButton returnButton = new JButton("Return");
+            returnButton.addActionListener(e -> returnSelected());
 
             JPanel buttonPanel = new JPanel(new FlowLayout());
+            buttonPanel.add(new JLabel("Filter:"));
+            buttonPanel.add(filterField);
             buttonPanel.add(refreshButton);
+            buttonPanel.add(borrowButton);
+            buttonPanel.add(returnButton);
             add(buttonPanel, BorderLayout.SOUTH);
         }
 
+        private Book selectedBook() {
+            if (currentUser == null) {
+                JOptionPane.showMessageDialog(this, "Please log in to borrow or return books");
+                return null;
+            }
+            int row = bookTable.getSelectedRow();
+            Book book = row < 0 ? null : tableModel.getBookAt(bookTable.convertRowIndexToModel(row));
+            if (book == null) {
+                JOptionPane.showMessageDialog(this, "Please select a book");
+            }
+            return book;
+        }
+
+        private void borrowSelected() {
+            Book book = selectedBook();
+            if (book == null) {
+                return;
+            }
+            BorrowRecord loan = dataStorage.checkoutBook(currentUser, book.getIsbn());
+            if (loan == null) {
+                offerHold(book);
+                return;
+            }
+            bookTable.repaint();
+            JOptionPane.showMessageDialog(this, "Borrowed \"" + book.getTitle() + "\", due "
+                    + DateFormat.getDateInstance().format(new Date(loan.getDueAt())));
+        }
+
+        private void offerHold(Book book) {
+            int position = dataStorage.getReservationPosition(currentUser, book.getIsbn());
+            if (position > 0) {
+                JOptionPane.showMessageDialog(this, "You are number " + position + " in line for \"" + book.getTitle() + "\"");
+                return;
+            }
+            int confirm = JOptionPane.showConfirmDialog(this,
+                    "No copies of \"" + book.getTitle() + "\" are available. Place a hold?",
+                    "Place Hold", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION || dataStorage.reserveBook(currentUser, book.getIsbn()) == null) {
+                return;
+            }
+            position = dataStorage.getReservationPosition(currentUser, book.getIsbn());
+            bookTable.repaint();
+            JOptionPane.showMessageDialog(this, position > 0
+                    ? "Hold placed: you are number " + position + " in line"
+                    : "A copy was free and has been lent to you");
+        }
+
+        private void returnSelected() {
+            Book book = selectedBook();
+            if (book == null) {
+                return;
+            }
+            if (!dataStorage.returnBook(currentUser, book.getIsbn())) {
+                JOptionPane.showMessageDialog(this, "You have not borrowed \"" + book.getTitle() + "\"");
+                return;
+            }
+            bookTable.repaint();
+            JOptionPane.showMessageDialog(this, "Returned \"" + book.getTitle() + "\"");
+        }
+
+        private void dispose() {
+            tableModel.dispose();
+        }
+
         private void refreshBooks() {
-            tableModel.setBooks(dataStorage.getAllBooks());
-            tableModel.fireTableDataChanged();
+            // Until the catalog has loaded, the model's first page is still on its way
+            if (dataStorage.isCatalogReady() && dataStorage.getCatalogVersion() != tableModel.getVersion()) {
+                tableModel.reload();
+            }
         }
     }
 
     private class SearchPanel extends JPanel {
+        private static final int DEBOUNCE_MILLIS = 250;
+        private static final int RESULT_CHUNK_SIZE = 200;
+
         private JTextField searchField;
         private JButton searchButton;
+        private JLabel statusLabel;
         private JTable resultTable;
         private BookTableModel tableModel;
+        private TableRowSorter<BookTableModel> sorter;
+        private JComboBox<FacetChoice> genreBox, publisherBox, decadeBox;
+        private JCheckBox availableOnlyBox;
+        private JLabel facetSummaryLabel;
+        // Set while the facet lists are refilled, so that does not count as the user picking a value
+        private boolean refillingFacets;
+        private int found;
+        private Timer debounceTimer;
+        private SearchWorker currentSearch;
+        // Searches run off the EDT, one at a time; a new query cancels the one in flight
+        private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "book-search");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         public SearchPanel() {
             setLayout(new BorderLayout(10, 10));
@@ -165,33 +320,247 @@ public class MainFrame extends JFrame {
             searchPanel.add(searchField, BorderLayout.CENTER);
             searchPanel.add(searchButton, BorderLayout.EAST);
 
-            // Results table
+            // Results table; the facet sidebar filters its rows in place instead of searching again
             tableModel = new BookTableModel(new ArrayList<>());
             resultTable = new JTable(tableModel);
+            sorter = new TableRowSorter<>(tableModel);
+            resultTable.setRowSorter(sorter);
             JScrollPane scrollPane = new JScrollPane(resultTable);
+            statusLabel = new JLabel(" ");
+            statusLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 5, 10));
 
             // Layout
             add(searchPanel, BorderLayout.NORTH);
+            add(createFacetSidebar(), BorderLayout.WEST);
             add(scrollPane, BorderLayout.CENTER);
-
-            // Event listeners
+            add(statusLabel, BorderLayout.SOUTH);
+
+            // Search as you type once the user pauses; Enter or the button searches immediately
+            debounceTimer = new Timer(DEBOUNCE_MILLIS, e -> performSearch());
+            debounceTimer.setRepeats(false);
+            searchField.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void insertUpdate(DocumentEvent e) { debounceTimer.restart(); }
+                @Override
+                public void removeUpdate(DocumentEvent e) { debounceTimer.restart(); }
+                @Override
+                public void changedUpdate(DocumentEvent e) { debounceTimer.restart(); }
+            });
             searchButton.addActionListener(e -> performSearch());
             searchField.addActionListener(e -> performSearch());
+
+            // Counts move with every checkout, so refresh them whenever the tab is shown
+            addComponentListener(new ComponentAdapter() {
+                @Override
+                public void componentShown(ComponentEvent e) {
+                    refreshFacets();
+                }
+            });
+            dataStorage.whenCatalogReady().thenRun(() -> SwingUtilities.invokeLater(this::refreshFacets));
+        }
+
+        private JPanel createFacetSidebar() {
+            genreBox = createFacetBox();
+            publisherBox = createFacetBox();
+            decadeBox = createFacetBox();
+            availableOnlyBox = new JCheckBox("Available only");
+            availableOnlyBox.addActionListener(e -> applyFacetFilter());
+            facetSummaryLabel = new JLabel(" ");
+
+            JPanel facets = new JPanel(new GridLayout(0, 1, 5, 5));
+            facets.add(new JLabel("Genre:"));
+            facets.add(genreBox);
+            facets.add(new JLabel("Publisher:"));
+            facets.add(publisherBox);
+            facets.add(new JLabel("Decade:"));
+            facets.add(decadeBox);
+            facets.add(availableOnlyBox);
+            facets.add(facetSummaryLabel);
+
+            JPanel sidebar = new JPanel(new BorderLayout());
+            sidebar.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createEmptyBorder(0, 10, 0, 0), BorderFactory.createTitledBorder("Refine")));
+            sidebar.add(facets, BorderLayout.NORTH);
+            return sidebar;
+        }
+
+        private JComboBox<FacetChoice> createFacetBox() {
+            JComboBox<FacetChoice> box = new JComboBox<>();
+            // Keeps long publisher names from widening the sidebar
+            box.setPrototypeDisplayValue(new FacetChoice(null, "XXXXXXXXXXXXXXXXXXXXXXXXX"));
+            box.addActionListener(e -> {
+                if (!refillingFacets) {
+                    applyFacetFilter();
+                }
+            });
+            return box;
+        }
+
+        // Reads the catalog-wide counts, which storage keeps up to date; no pass over the books
+        private void refreshFacets() {
+            if (!dataStorage.isCatalogReady()) {
+                return;
+            }
+            FacetCounts counts = dataStorage.getFacetCounts();
+            refillingFacets = true;
+            try {
+                fillFacetBox(genreBox, "All genres", counts.getTotal(), counts.getGenres());
+                fillFacetBox(publisherBox, "All publishers", counts.getTotal(), counts.getPublishers());
+                fillFacetBox(decadeBox, "All decades", counts.getTotal(), counts.getDecades());
+            } finally {
+                refillingFacets = false;
+            }
+            FacetCounts.Count total = counts.getTotal();
+            facetSummaryLabel.setText(total.getBooks() + " books, " + total.getCheckedOut() + " checked out");
+            // A value that has gone from the catalog falls back to "All"
+            applyFacetFilter();
+        }
+
+        private void fillFacetBox(JComboBox<FacetChoice> box, String allLabel, FacetCounts.Count total,
+                                  Map<?, FacetCounts.Count> counts) {
+            Object selected = selectedValue(box);
+            DefaultComboBoxModel<FacetChoice> model = new DefaultComboBoxModel<>();
+            model.addElement(new FacetChoice(null, allLabel + " (" + total.getBooks() + ")"));
+            for (Map.Entry<?, FacetCounts.Count> entry : counts.entrySet()) {
+                FacetCounts.Count count = entry.getValue();
+                FacetChoice choice = new FacetChoice(entry.getKey(), facetName(entry.getKey())
+                        + " (" + count.getBooks() + ", " + count.getAvailable() + " available)");
+                model.addElement(choice);
+                if (entry.getKey().equals(selected)) {
+                    model.setSelectedItem(choice);
+                }
+            }
+            box.setModel(model);
+        }
+
+        private String facetName(Object value) {
+            if (value instanceof Integer) {
+                return value + "s";
+            }
+            return FacetCounts.NONE.equals(value) ? "(none)" : value.toString();
+        }
+
+        private Object selectedValue(JComboBox<FacetChoice> box) {
+            FacetChoice choice = (FacetChoice) box.getSelectedItem();
+            return choice == null ? null : choice.value;
+        }
+
+        private void applyFacetFilter() {
+            Object genre = selectedValue(genreBox);
+            Object publisher = selectedValue(publisherBox);
+            Object decade = selectedValue(decadeBox);
+            boolean availableOnly = availableOnlyBox.isSelected();
+            if (genre == null && publisher == null && decade == null && !availableOnly) {
+                sorter.setRowFilter(null);
+            } else {
+                sorter.setRowFilter(new RowFilter<BookTableModel, Integer>() {
+                    @Override
+                    public boolean include(Entry<? extends BookTableModel, ? extends Integer> entry) {
+                        Book book = entry.getModel().getBookAt(entry.getIdentifier());
+                        return (genre == null || genre.equals(FacetCounts.genreOf(book)))
+                                && (publisher == null || publisher.equals(FacetCounts.publisherOf(book)))
+                                && (decade == null || decade.equals(FacetCounts.decadeOf(book)))
+                                && (!availableOnly || book.isAvailable());
+                    }
+                });
+            }
+            showResultCount();
+        }
+
+        private void showResultCount() {
+            if (currentSearch != null) {
+                return;
+            }
+            int shown = resultTable.getRowCount();
+            if (found == 0) {
+                statusLabel.setText(searchField.getText().trim().isEmpty() ? " " : "No books found matching your search");
+            } else if (shown < found) {
+                statusLabel.setText(shown + " of " + found + " books shown");
+            } else {
+                statusLabel.setText(found + (found == 1 ? " book found" : " books found"));
+            }
         }
 
         private void performSearch() {
+            debounceTimer.stop();
+            if (currentSearch != null) {
+                currentSearch.cancel(true);
+                currentSearch = null;
+            }
+            tableModel.clear();
+            found = 0;
+
             String query = searchField.getText().trim();
             if (query.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Please enter a search term");
+                statusLabel.setText(" ");
                 return;
             }
 
-            List<Book> results = dataStorage.searchBooks(query);
-            tableModel.setBooks(results);
-            tableModel.fireTableDataChanged();
+            statusLabel.setText("Searching...");
+            currentSearch = new SearchWorker(query);
+            searchExecutor.execute(currentSearch);
+        }
+
+        private void dispose() {
+            debounceTimer.stop();
+            searchExecutor.shutdownNow();
+        }
+
+        // Runs one query in the background and streams its results into the table as they are found
+        private class SearchWorker extends SwingWorker<Integer, List<Book>> {
+            private final String query;
+
+            SearchWorker(String query) {
+                this.query = query;
+            }
+
+            @Override
+            protected Integer doInBackground() {
+                // cancel(true) also interrupts this thread, which stops a long scan between matches
+                return dataStorage.searchBooks(query, RESULT_CHUNK_SIZE, chunk -> {
+                    publish(chunk);
+                    return !isCancelled();
+                });
+            }
+
+            @Override
+            protected void process(List<List<Book>> chunks) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (List<Book> chunk : chunks) {
+                    tableModel.appendBooks(chunk);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                currentSearch = null;
+                try {
+                    found = get();
+                    refreshFacets();
+                } catch (InterruptedException | ExecutionException e) {
+                    statusLabel.setText("Search failed: " + e.getMessage());
+                }
+            }
+        }
+
+        // A sidebar entry: a facet value, or null for all of them, labelled with its counts
+        private class FacetChoice {
+            final Object value;
+            final String label;
 
-            if (results.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "No books found matching your search");
+            FacetChoice(Object value, String label) {
+                this.value = value;
+                this.label = label;
+            }
+
+            @Override
+            public String toString() {
+                return label;
             }
         }
     }
@@ -199,7 +568,8 @@ public class MainFrame extends JFrame {
     private class ManageBooksPanel extends JPanel {
         private JTextField isbnField, titleField, authorField, genreField, publisherField;
         private JTextField yearField, copiesField, descriptionField;
-        private JButton addButton, removeButton, updateButton;
+        private JButton addButton, removeButton, updateButton, importButton, exportButton;
+        private JProgressBar importProgress;
 
         public ManageBooksPanel() {
             setLayout(new BorderLayout(10, 10));
@@ -242,14 +612,24 @@ public class MainFrame extends JFrame {
             addButton = new JButton("Add Book");
             removeButton = new JButton("Remove Book");
             updateButton = new JButton("Update Book");
+            importButton = new JButton("Import Feed...");
+            exportButton = new JButton("Export Catalog...");
+            importProgress = new JProgressBar(0, 1000);
+            importProgress.setStringPainted(true);
+            importProgress.setVisible(false);
 
             addButton.addActionListener(e -> addBook());
             removeButton.addActionListener(e -> removeBook());
             updateButton.addActionListener(e -> updateBook());
+            importButton.addActionListener(e -> importFeed());
+            exportButton.addActionListener(e -> exportCatalog());
 
             buttonPanel.add(addButton);
             buttonPanel.add(removeButton);
             buttonPanel.add(updateButton);
+            buttonPanel.add(importButton);
+            buttonPanel.add(exportButton);
+            buttonPanel.add(importProgress);
 
             add(formPanel, BorderLayout.CENTER);
             add(buttonPanel, BorderLayout.SOUTH);
@@ -271,18 +651,14 @@ public class MainFrame extends JFrame {
                     return;
                 }
 
-                Book existingBook = dataStorage.findBookByIsbn(isbn);
-                if (existingBook != null) {
+                Book newBook = new Book(isbn, title, author, genre, publisher, year, copies, description);
+                if (!dataStorage.addBook(newBook)) {
                     JOptionPane.showMessageDialog(this, "Book with this ISBN already exists");
                     return;
                 }
 
-                Book newBook = new Book(isbn, title, author, genre, publisher, year, copies, description);
-                dataStorage.addBook(newBook);
-
                 JOptionPane.showMessageDialog(this, "Book added successfully!");
                 clearFields();
-                bookPanel.refreshBooks();
 
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Please enter valid numbers for year and copies");
@@ -305,7 +681,6 @@ public class MainFrame extends JFrame {
                 if (removed) {
                     JOptionPane.showMessageDialog(this, "Book removed successfully!");
                     clearFields();
-                    bookPanel.refreshBooks();
                 } else {
                     JOptionPane.showMessageDialog(this, "Book not found with ISBN: " + isbn);
                 }
@@ -328,27 +703,109 @@ public class MainFrame extends JFrame {
                     return;
                 }
 
-                Book existingBook = dataStorage.findBookByIsbn(isbn);
-                if (existingBook == null) {
+                Book updatedBook = new Book(isbn, title, author, genre, publisher, year, copies, description);
+                if (!dataStorage.updateBook(updatedBook)) {
                     JOptionPane.showMessageDialog(this, "Book not found with ISBN: " + isbn);
                     return;
                 }
 
-                Book updatedBook = new Book(isbn, title, author, genre, publisher, year, copies, description);
-                dataStorage.updateBook(updatedBook);
-
                 JOptionPane.showMessageDialog(this, "Book updated successfully!");
                 clearFields();
-                bookPanel.refreshBooks();
 
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Please enter valid numbers for year and copies");
             }
         }
 
+        private void importFeed() {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new FileNameExtensionFilter(
+                    "Catalog feeds (CSV, MARC21)", "csv", "mrc", "marc"));
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            importButton.setEnabled(false);
+            importProgress.setValue(0);
+            importProgress.setString("Importing...");
+            importProgress.setVisible(true);
+            new ImportWorker(chooser.getSelectedFile()).execute();
+        }
+
+        private void exportCatalog() {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("catalog.csv"));
+            chooser.setFileFilter(new FileNameExtensionFilter(
+                    "CSV or JSON Lines (add .gz to compress)", "csv", "jsonl", "json", "gz"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File target = chooser.getSelectedFile();
+            exportButton.setEnabled(false);
+            new SwingWorker<Long, Void>() {
+                @Override
+                protected Long doInBackground() throws Exception {
+                    return new CatalogExporter(dataStorage).export(target);
+                }
+
+                @Override
+                protected void done() {
+                    exportButton.setEnabled(true);
+                    try {
+                        JOptionPane.showMessageDialog(ManageBooksPanel.this,
+                                get() + " books exported to " + target.getName());
+                    } catch (InterruptedException | ExecutionException e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        JOptionPane.showMessageDialog(ManageBooksPanel.this, "Export failed: " + cause.getMessage());
+                    }
+                }
+            }.execute();
+        }
+
+        // Runs the import off the EDT and shows its progress reports in the progress bar
+        private class ImportWorker extends SwingWorker<ImportReport, ImportReport> {
+            private final File feed;
+
+            ImportWorker(File feed) {
+                this.feed = feed;
+            }
+
+            @Override
+            protected ImportReport doInBackground() throws Exception {
+                CatalogImporter importer = new CatalogImporter(dataStorage);
+                importer.setProgressListener(this::publish);
+                return importer.importFile(feed);
+            }
+
+            @Override
+            protected void process(List<ImportReport> reports) {
+                ImportReport latest = reports.get(reports.size() - 1);
+                importProgress.setValue((int) (latest.getProgress() * 1000));
+                importProgress.setString(String.format("%d records (%.0f/s)",
+                        latest.getRecordsRead(), latest.getRecordsPerSecond()));
+            }
+
+            @Override
+            protected void done() {
+                importButton.setEnabled(true);
+                importProgress.setVisible(false);
+                try {
+                    ImportReport report = get();
+                    StringBuilder message = new StringBuilder("Import finished: ").append(report);
+                    List<String> rejects = report.getRejectSamples();
+                    for (int i = 0; i < Math.min(10, rejects.size()); i++) {
+                        message.append(i == 0 ? "\n\nRejected:\n" : "\n").append(rejects.get(i));
+                    }
+                    JOptionPane.showMessageDialog(ManageBooksPanel.this, message.toString());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(ManageBooksPanel.this, "Import failed: " + cause.getMessage());
+                }
+            }
+        }
+
         private void clearFields() {
             isbnField.setText("");
-            titleField.setText("");e
+            titleField.setText("");
             authorField.setText("");
             genreField.setText("");
             publisherField.setText("");
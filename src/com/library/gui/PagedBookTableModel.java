@@ -0,0 +1,321 @@
+package com.library.gui;
+
+import com.library.data.BookPage;
+import com.library.data.BookSort;
+import com.library.data.CatalogEvent;
+import com.library.data.CatalogListener;
+import com.library.data.DataStorage;
+import com.library.models.Book;
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Table model that pages rows in from {@link DataStorage} as they are
+ * rendered instead of holding the whole catalog. Only the most recently
+ * used pages stay resident; sorting and filtering are delegated to the
+ * storage layer. Pages are fetched on a background thread, since the first
+ * fetch after a catalog change builds the sorted view; until a page arrives
+ * its rows show as placeholders, and the EDT never waits on storage.
+ *
+ * <p>Catalog changes arrive as {@link CatalogEvent}s. They are queued and
+ * applied on the EDT in one pass, with runs of adjacent inserts, deletes or
+ * updates merged into a single row-range event. While a sort or filter is
+ * active, row positions in catalog order do not map onto the table, so a
+ * burst of changes triggers a single reload instead.
+ */
+public class PagedBookTableModel extends BookTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_RESIDENT_PAGES = 20;
+    // Beyond this many separate row ranges a full data-changed event is cheaper
+    private static final int MAX_COALESCED_RANGES = 16;
+    private static final BookSort[] COLUMN_SORTS = {
+            BookSort.ISBN, BookSort.TITLE, BookSort.AUTHOR, BookSort.GENRE,
+            BookSort.PUBLISHER, BookSort.YEAR, BookSort.AVAILABLE, BookSort.TOTAL
+    };
+
+    private final DataStorage dataStorage;
+    private final Map<Integer, List<Book>> pages = new LinkedHashMap<Integer, List<Book>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Book>> eldest) {
+            return size() > MAX_RESIDENT_PAGES;
+        }
+    };
+
+    // Fetches pages off the EDT, in request order, so the first page of a reload lands first
+    private final ExecutorService pageLoader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "book-pages");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Pages requested and not yet arrived
+    private final Set<Integer> loading = new HashSet<>();
+
+    private String filter = "";
+    private BookSort sort = BookSort.CATALOG;
+    private boolean descending;
+    private long version;
+    private int rowCount;
+    // Bumped by every reload; pages fetched for an older one are dropped
+    private long generation;
+    private boolean reloading;
+    // Set by dispose; the page loader is shut down, so nothing more may be queued on it
+    private boolean disposed;
+
+    private final Queue<CatalogEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final CatalogListener listener = event -> {
+        pendingEvents.add(event);
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::applyPendingEvents);
+        }
+    };
+
+    public PagedBookTableModel(DataStorage dataStorage) {
+        super(Collections.<Book>emptyList());
+        this.dataStorage = dataStorage;
+        // Register before the first load so no change can fall between the two
+        dataStorage.addCatalogListener(listener);
+        reload();
+    }
+
+    /**
+     * Stops listening for catalog changes; call when the table is discarded.
+     * Rows not yet fetched keep showing as placeholders afterwards.
+     */
+    public void dispose() {
+        disposed = true;
+        dataStorage.removeCatalogListener(listener);
+        pageLoader.shutdownNow();
+        pendingEvents.clear();
+    }
+
+    /**
+     * Drops all resident pages and re-reads the row count and first page
+     * from storage in the background; the table changes when they arrive.
+     */
+    public void reload() {
+        if (disposed) {
+            return;
+        }
+        pages.clear();
+        loading.clear();
+        reloading = true;
+        long requested = ++generation;
+        String filter = this.filter;
+        BookSort sort = this.sort;
+        boolean descending = this.descending;
+        loading.add(0);
+        pageLoader.execute(() -> {
+            BookPage first = dataStorage.getBookPage(filter, sort, descending, 0, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> reloaded(requested, first));
+        });
+    }
+
+    private void reloaded(long requested, BookPage first) {
+        if (requested != generation) {
+            return;
+        }
+        loading.remove(0);
+        reloading = false;
+        version = first.getVersion();
+        rowCount = first.getTotalRows();
+        pages.put(0, first.getRows());
+        fireTableDataChanged();
+        // Changes that came in during the reload; those it already covers are skipped
+        applyPendingEvents();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter == null ? "" : filter.trim();
+        reload();
+    }
+
+    /** Sorts by the given model column; selecting the same column again reverses the order. */
+    public void sortByColumn(int column) {
+        if (column < 0 || column >= COLUMN_SORTS.length) {
+            return;
+        }
+        BookSort selected = COLUMN_SORTS[column];
+        descending = selected == sort && !descending;
+        sort = selected;
+        reload();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /** The book in the row, or null while its page is still being fetched. */
+    @Override
+    protected Book getBookAt(int rowIndex) {
+        int pageIndex = rowIndex / PAGE_SIZE;
+        List<Book> rows = pages.get(pageIndex);
+        if (rows == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        int offset = rowIndex - pageIndex * PAGE_SIZE;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (getBookAt(rowIndex) == null) {
+            return columnIndex == 1 ? "Loading..." : null;
+        }
+        return super.getValueAt(rowIndex, columnIndex);
+    }
+
+    private void requestPage(int pageIndex) {
+        if (disposed || !loading.add(pageIndex)) {
+            return;
+        }
+        long requested = generation;
+        String filter = this.filter;
+        BookSort sort = this.sort;
+        boolean descending = this.descending;
+        pageLoader.execute(() -> {
+            BookPage page = dataStorage.getBookPage(filter, sort, descending, pageIndex * PAGE_SIZE, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> pageLoaded(requested, pageIndex, page));
+        });
+    }
+
+    private void pageLoaded(long requested, int pageIndex, BookPage page) {
+        if (requested != generation) {
+            return;
+        }
+        loading.remove(pageIndex);
+        if (page.getVersion() != version) {
+            // The catalog moved on since the rows on screen were counted; resync
+            reload();
+            return;
+        }
+        pages.put(pageIndex, page.getRows());
+        int first = pageIndex * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private void applyPendingEvents() {
+        drainScheduled.set(false);
+        if (disposed) {
+            pendingEvents.clear();
+            return;
+        }
+        if (reloading) {
+            // Left queued; the reload drains them once it has its version
+            return;
+        }
+        List<CatalogEvent> burst = new ArrayList<>();
+        CatalogEvent event;
+        while ((event = pendingEvents.poll()) != null) {
+            // Skip changes the last reload already picked up
+            if (event.getVersion() > version) {
+                burst.add(event);
+            }
+        }
+        if (burst.isEmpty()) {
+            return;
+        }
+        if (!filter.isEmpty() || sort != BookSort.CATALOG || descending) {
+            reload();
+            return;
+        }
+
+        List<int[]> ranges = coalesce(burst);
+        version = burst.get(burst.size() - 1).getVersion();
+        if (ranges.size() > MAX_COALESCED_RANGES) {
+            reload();
+            return;
+        }
+        for (int[] range : ranges) {
+            CatalogEvent.Type type = CatalogEvent.Type.values()[range[0]];
+            int first = range[1];
+            int last = range[2];
+            switch (type) {
+                case INSERT:
+                    rowCount += last - first + 1;
+                    invalidatePages(first / PAGE_SIZE, Integer.MAX_VALUE);
+                    fireTableRowsInserted(first, last);
+                    break;
+                case DELETE:
+                    rowCount -= last - first + 1;
+                    invalidatePages(first / PAGE_SIZE, Integer.MAX_VALUE);
+                    fireTableRowsDeleted(first, last);
+                    break;
+                case UPDATE:
+                    invalidatePages(first / PAGE_SIZE, last / PAGE_SIZE);
+                    fireTableRowsUpdated(first, last);
+                    break;
+            }
+        }
+    }
+
+    // Merges consecutive events of one type that touch adjacent rows into {type, first, last} ranges
+    private static List<int[]> coalesce(List<CatalogEvent> events) {
+        List<int[]> ranges = new ArrayList<>();
+        int[] current = null;
+        for (CatalogEvent event : events) {
+            int type = event.getType().ordinal();
+            int position = event.getPosition();
+            if (current != null && current[0] == type && extend(current, event.getType(), position)) {
+                continue;
+            }
+            current = new int[] {type, position, position};
+            ranges.add(current);
+        }
+        return ranges;
+    }
+
+    private static boolean extend(int[] range, CatalogEvent.Type type, int position) {
+        switch (type) {
+            case INSERT:
+                if (position == range[2] + 1) {
+                    range[2] = position;
+                    return true;
+                }
+                return false;
+            case DELETE:
+                // Deleting row p shifts the next row down into p; deleting backwards walks p down
+                if (position == range[1]) {
+                    range[2]++;
+                    return true;
+                }
+                if (position == range[1] - 1) {
+                    range[1] = position;
+                    return true;
+                }
+                return false;
+            default:
+                if (position >= range[1] - 1 && position <= range[2] + 1) {
+                    range[1] = Math.min(range[1], position);
+                    range[2] = Math.max(range[2], position);
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    private void invalidatePages(int fromPage, int toPage) {
+        pages.keySet().removeIf(page -> page >= fromPage && page <= toPage);
+    }
+}
@@ -1,9 +1,35 @@
 package com.library.models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+/**
+ * A catalogued title. Genre and publisher are shared through the
+ * {@link ValueDictionary}, and the description, which is long and rarely
+ * read, is held as UTF-8 bytes and decoded on access.
+ */
 public class Book implements Serializable {
     private static final long serialVersionUID = 1L;
+    // The serialized form keeps the original String description, so old data files still load
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("isbn", String.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("author", String.class),
+            new ObjectStreamField("genre", String.class),
+            new ObjectStreamField("publisher", String.class),
+            new ObjectStreamField("publicationYear", int.class),
+            new ObjectStreamField("totalCopies", int.class),
+            new ObjectStreamField("availableCopies", int.class),
+            new ObjectStreamField("description", String.class)
+    };
+    // CAS on the field itself, so circulation needs no AtomicInteger per book
+    private static final AtomicIntegerFieldUpdater<Book> AVAILABLE_COPIES =
+            AtomicIntegerFieldUpdater.newUpdater(Book.class, "availableCopies");
     
     private String isbn;
     private String title;
@@ -12,20 +38,20 @@ public class Book implements Serializable {
     private String publisher;
     private int publicationYear;
     private int totalCopies;
-    private int availableCopies;
-    private String description;
+    private volatile int availableCopies;
+    private byte[] description;
 
     public Book(String isbn, String title, String author, String genre, String publisher, 
                 int publicationYear, int totalCopies, String description) {
         this.isbn = isbn;
         this.title = title;
         this.author = author;
-        this.genre = genre;
-        this.publisher = publisher;
+        this.genre = ValueDictionary.intern(genre);
+        this.publisher = ValueDictionary.intern(publisher);
         this.publicationYear = publicationYear;
         this.totalCopies = totalCopies;
         this.availableCopies = totalCopies;
-        this.description = description;
+        this.description = encode(description);
     }
 
     // Getters and setters
@@ -37,23 +63,89 @@ public class Book implements Serializable {
     public int getPublicationYear() { return publicationYear; }
     public int getTotalCopies() { return totalCopies; }
     public int getAvailableCopies() { return availableCopies; }
-    public String getDescription() { return description; }
+    public String getDescription() { return description == null ? null : new String(description, StandardCharsets.UTF_8); }
     public boolean isAvailable() { return availableCopies > 0; }
     
     public void setAvailableCopies(int availableCopies) { 
         this.availableCopies = availableCopies;
     }
     
+    /**
+     * Takes one copy if any is available and returns the copies that were
+     * available before the checkout (1 means it took the last one), or 0 if
+     * none was taken. Lock-free: concurrent checkouts retry the
+     * compare-and-set, so the count can never go below zero.
+     */
+    public int checkoutCopy() {
+        for (;;) {
+            int available = availableCopies;
+            if (available <= 0) {
+                return 0;
+            }
+            if (AVAILABLE_COPIES.compareAndSet(this, available, available - 1)) {
+                return available;
+            }
+        }
+    }
+
+    /**
+     * Puts one copy back, never exceeding the total, and returns the copies
+     * that were available before the return (0 means the book is back on
+     * the shelf), or -1 if all copies were already in.
+     */
+    public int checkinCopy() {
+        for (;;) {
+            int available = availableCopies;
+            if (available >= totalCopies) {
+                return -1;
+            }
+            if (AVAILABLE_COPIES.compareAndSet(this, available, available + 1)) {
+                return available;
+            }
+        }
+    }
+
     public void setTotalCopies(int totalCopies) {
         this.totalCopies = totalCopies;
     }
     
     public void setDescription(String description) {
-        this.description = description;
+        this.description = encode(description);
+    }
+
+    private static byte[] encode(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("isbn", isbn);
+        fields.put("title", title);
+        fields.put("author", author);
+        fields.put("genre", genre);
+        fields.put("publisher", publisher);
+        fields.put("publicationYear", publicationYear);
+        fields.put("totalCopies", totalCopies);
+        fields.put("availableCopies", availableCopies);
+        fields.put("description", getDescription());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        isbn = (String) fields.get("isbn", null);
+        title = (String) fields.get("title", null);
+        author = (String) fields.get("author", null);
+        genre = ValueDictionary.intern((String) fields.get("genre", null));
+        publisher = ValueDictionary.intern((String) fields.get("publisher", null));
+        publicationYear = fields.get("publicationYear", 0);
+        totalCopies = fields.get("totalCopies", 0);
+        availableCopies = fields.get("availableCopies", 0);
+        description = encode((String) fields.get("description", null));
     }
     
     @Override
     public String toString() {
-        return title + " by " + author + " (" + publicationYear + ")";
+        return getTitle() + " by " + getAuthor() + " (" + getPublicationYear() + ")";
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.library.models;
+
+import java.io.Serializable;
+
+/**
+ * One loan of one copy of a book. Records are immutable: returning a book
+ * produces a new record with the return time set, and both states are
+ * appended to the borrow log.
+ */
+public class BorrowRecord implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private final String username;
+    private final String isbn;
+    private final long borrowedAt;
+    private final long dueAt;
+    private final long returnedAt; // 0 while the copy is out
+
+    public BorrowRecord(long id, String username, String isbn, long borrowedAt, long dueAt) {
+        this(id, username, isbn, borrowedAt, dueAt, 0);
+    }
+
+    public BorrowRecord(long id, String username, String isbn, long borrowedAt, long dueAt, long returnedAt) {
+        this.id = id;
+        this.username = username;
+        this.isbn = isbn;
+        this.borrowedAt = borrowedAt;
+        this.dueAt = dueAt;
+        this.returnedAt = returnedAt;
+    }
+
+    public BorrowRecord returned(long returnedAt) {
+        return new BorrowRecord(id, username, isbn, borrowedAt, dueAt, returnedAt);
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public String getUsername() { return username; }
+    public String getIsbn() { return isbn; }
+    public long getBorrowedAt() { return borrowedAt; }
+    public long getDueAt() { return dueAt; }
+    public long getReturnedAt() { return returnedAt; }
+    public boolean isReturned() { return returnedAt != 0; }
+
+    public boolean isOverdue(long now) {
+        return !isReturned() && now > dueAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Loan #" + id + " of " + isbn + " to " + username;
+    }
+}
@@ -0,0 +1,52 @@
+package com.library.models;
+
+/**
+ * ISBN normalization so that equivalent spellings of the same ISBN
+ * ("0-13-468599-7", "978-0134685991", "9780134685991") map to one key.
+ */
+public final class Isbn {
+    private Isbn() {
+    }
+
+    /**
+     * Strips hyphens and whitespace and converts ISBN-10 to ISBN-13.
+     * Values that are not ISBN-shaped are returned stripped and upper-cased
+     * so they still work as keys.
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && !Character.isWhitespace(c)) {
+                sb.append(Character.toUpperCase(c));
+            }
+        }
+        if (sb.length() == 10 && isIsbn10(sb)) {
+            return toIsbn13(sb);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isIsbn10(CharSequence digits) {
+        for (int i = 0; i < 9; i++) {
+            if (!Character.isDigit(digits.charAt(i))) {
+                return false;
+            }
+        }
+        char last = digits.charAt(9);
+        return Character.isDigit(last) || last == 'X';
+    }
+
+    private static String toIsbn13(CharSequence isbn10) {
+        StringBuilder sb = new StringBuilder(13).append("978").append(isbn10, 0, 9);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = sb.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return sb.append((10 - sum % 10) % 10).toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.library.models;
+
+import java.io.Serializable;
+
+/** A patron's place in the hold queue of a book. Ids increase in the order holds are placed. */
+public class Reservation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private final String username;
+    private final String isbn;
+    private final long placedAt;
+
+    public Reservation(long id, String username, String isbn, long placedAt) {
+        this.id = id;
+        this.username = username;
+        this.isbn = isbn;
+        this.placedAt = placedAt;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public String getUsername() { return username; }
+    public String getIsbn() { return isbn; }
+    public long getPlacedAt() { return placedAt; }
+
+    @Override
+    public String toString() {
+        return "Hold #" + id + " on " + isbn + " for " + username;
+    }
+}
@@ -0,0 +1,37 @@
+package com.library.models;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalog-wide dictionary for low-cardinality book fields (genre and
+ * publisher). Every book holding a value shares one String instance,
+ * however the book was created, so a million books with a few hundred
+ * genres hold a few hundred genre strings. Entries are kept for the life
+ * of the process; the dictionary only grows by distinct values, so
+ * high-cardinality fields such as author must not be interned here.
+ */
+public final class ValueDictionary {
+    private static final Map<String, String> values = new ConcurrentHashMap<>();
+
+    private ValueDictionary() {
+    }
+
+    /** The shared instance equal to {@code value}; null stays null. */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        // Plain get first: almost every value is already present, and the read takes no lock
+        String shared = values.get(value);
+        if (shared == null) {
+            shared = values.putIfAbsent(value, value);
+        }
+        return shared != null ? shared : value;
+    }
+
+    /** Number of distinct values held. */
+    public static int size() {
+        return values.size();
+    }
+}